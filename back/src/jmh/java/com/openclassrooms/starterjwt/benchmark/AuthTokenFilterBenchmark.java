@@ -0,0 +1,96 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.TokenAuthenticationCache;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+/**
+ * Authentication of a bearer token by {@link AuthTokenFilter}, with the token already cached and with
+ * a cold cache where the filter verifies the signature and loads the user from H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthTokenFilterBenchmark {
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    private ConfigurableApplicationContext context;
+
+    private AuthTokenFilter filter;
+
+    private TokenAuthenticationCache authenticationCache;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        filter = context.getBean(AuthTokenFilter.class);
+        authenticationCache = context.getBean(TokenAuthenticationCache.class);
+
+        User user = BenchmarkContext.createUsers(context, "filter", 1).get(0);
+        UserDetailsImpl principal = new UserDetailsImpl(user.getId(), user.getEmail(), user.getFirstName(),
+            user.getLastName(), false, null);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(principal, null, null);
+        String token = context.getBean(JwtUtils.class).generateJwtToken(authentication);
+
+        request = new MockHttpServletRequest("GET", "/api/session");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Authentication cachedToken() throws ServletException, IOException {
+        return authenticate();
+    }
+
+    @Benchmark
+    public Authentication uncachedToken() throws ServletException, IOException {
+        authenticationCache.evictAll();
+        return authenticate();
+    }
+
+    private Authentication authenticate() throws ServletException, IOException {
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
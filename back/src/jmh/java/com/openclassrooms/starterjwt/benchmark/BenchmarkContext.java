@@ -0,0 +1,66 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.openclassrooms.starterjwt.SpringBootSecurityJwtApplication;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+
+/**
+ * Boots the application on a random port against an in-memory H2 database, so service paths can be
+ * measured with real queries. Arguments override both application.properties on the classpath.
+ */
+final class BenchmarkContext {
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(SpringBootSecurityJwtApplication.class)
+            .logStartupInfo(false)
+            .run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--oc.app.jwtSecret=benchmarkSecret");
+    }
+
+    static Teacher createTeacher(ConfigurableApplicationContext context) {
+        return context.getBean(TeacherRepository.class).save(Teacher.builder()
+            .firstName("Margot")
+            .lastName("Delahaye")
+            .build());
+    }
+
+    static List<User> createUsers(ConfigurableApplicationContext context, String prefix, int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User(prefix + i + "@studio.com", "Bench", "User" + i, "password", false));
+        }
+        return context.getBean(UserRepository.class).saveAll(users);
+    }
+
+    static Session createSession(ConfigurableApplicationContext context, Teacher teacher) {
+        return context.getBean(SessionRepository.class).save(Session.builder()
+            .name("Benchmark session")
+            .date(new Date())
+            .description("Session used by benchmarks")
+            .teacher(teacher)
+            .build());
+    }
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.services.SessionService;
+
+/**
+ * Joining and leaving a session through {@link SessionService} against H2. Each invocation joins and
+ * leaves so the session is back in its initial state for the next one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticipationBenchmark {
+    private ConfigurableApplicationContext context;
+
+    private SessionService sessionService;
+
+    private Long sessionId;
+
+    private Long userId;
+
+    private Long participantId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        sessionService = context.getBean(SessionService.class);
+
+        sessionId = BenchmarkContext.createSession(context, BenchmarkContext.createTeacher(context)).getId();
+        userId = BenchmarkContext.createUsers(context, "member", 1).get(0).getId();
+        participantId = BenchmarkContext.createUsers(context, "participant", 1).get(0).getId();
+        sessionService.participate(sessionId, participantId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void participateAndLeave() {
+        sessionService.participate(sessionId, userId);
+        sessionService.noLongerParticipate(sessionId, userId);
+    }
+
+    @Benchmark
+    public boolean participateTwice() {
+        try {
+            sessionService.participate(sessionId, participantId);
+            return false;
+        } catch (BadRequestException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+
+/**
+ * Serialization of the session list as returned by {@code GET /api/session}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionJsonBenchmark {
+    private static final int SESSIONS = 20;
+
+    @Param({"0", "100", "1000"})
+    private int participants;
+
+    private ObjectMapper objectMapper;
+
+    private List<SessionDto> sessions;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Long> users = new ArrayList<>(participants);
+        for (long i = 1; i <= participants; i++) {
+            users.add(i);
+        }
+        sessions = new ArrayList<>(SESSIONS);
+        for (long i = 1; i <= SESSIONS; i++) {
+            sessions.add(new SessionDto(i, "Session " + i, new Date(), 1L, "Description of session " + i, users,
+                LocalDateTime.now(), LocalDateTime.now(), null));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeSessions() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(sessions);
+    }
+}
@@ -0,0 +1,83 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+
+/**
+ * Session mapping with growing participant lists. {@code toEntity} resolves the teacher and users
+ * through the services, so it runs against H2 and includes the database round-trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionMapperBenchmark {
+    @Param({"0", "100", "1000"})
+    private int participants;
+
+    private ConfigurableApplicationContext context;
+
+    private SessionMapper sessionMapper;
+
+    private Session session;
+
+    private SessionDto sessionDto;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        sessionMapper = context.getBean(SessionMapper.class);
+
+        Teacher teacher = BenchmarkContext.createTeacher(context);
+        List<User> users = BenchmarkContext.createUsers(context, "attendee", participants);
+        session = Session.builder()
+            .id(1L)
+            .name("Mapped session")
+            .date(new Date())
+            .description("Session mapped by benchmarks")
+            .teacher(teacher)
+            .users(users)
+            .build();
+        sessionDto = new SessionDto(null, "Mapped session", new Date(), teacher.getId(), "Session mapped by benchmarks",
+            users.stream().map(User::getId).collect(Collectors.toList()), null, null, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SessionDto toDto() {
+        return sessionMapper.toDto(session);
+    }
+
+    @Benchmark
+    public Session toEntity() {
+        return sessionMapper.toEntity(sessionDto);
+    }
+}
@@ -0,0 +1,102 @@
+package com.openclassrooms.starterjwt.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Selects the executor Tomcat runs requests on, see {@code oc.app.execution.mode}:
+ * <ul>
+ *     <li>{@code platform}: Tomcat's own thread pool, the default;</li>
+ *     <li>{@code bounded}: as many workers as pooled JDBC connections, so no request thread waits on the pool,
+ *     and a bounded queue behind them; connections that do not fit are closed rather than left to time out;</li>
+ *     <li>{@code virtual}: one virtual thread per request on Java 21+, where the JDBC pool is the only limit.
+ *     Falls back to {@code bounded} on older runtimes.</li>
+ * </ul>
+ */
+@Configuration
+@Log4j2
+public class ExecutionConfig {
+    public enum Mode { PLATFORM, BOUNDED, VIRTUAL }
+
+    private final ExecutorService executor;
+
+    public ExecutionConfig(@Value("${oc.app.execution.mode:platform}") String mode,
+                           @Value("${oc.app.execution.maxThreads:${spring.datasource.hikari.maximum-pool-size:10}}") int maxThreads,
+                           @Value("${oc.app.execution.queueCapacity:1000}") int queueCapacity) {
+        this.executor = createExecutor(Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)), maxThreads, queueCapacity);
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> executionModeCustomizer() {
+        return handler -> {
+            if (this.executor != null) {
+                handler.setExecutor(this.executor);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+
+    static ExecutorService createExecutor(Mode mode, int maxThreads, int queueCapacity) {
+        return createExecutor(mode, maxThreads, queueCapacity, ExecutionConfig::virtualThreadExecutor);
+    }
+
+    /**
+     * @param virtualThreads the virtual-thread executor of the runtime, or {@code null} when it has none
+     */
+    static ExecutorService createExecutor(Mode mode, int maxThreads, int queueCapacity,
+                                          Supplier<ExecutorService> virtualThreads) {
+        switch (mode) {
+            case VIRTUAL:
+                ExecutorService virtual = virtualThreads.get();
+                if (virtual != null) {
+                    log.info("Handling requests on virtual threads");
+                    return virtual;
+                }
+                log.warn("Virtual threads are not available on this runtime, using a bounded executor instead");
+                // fall through
+            case BOUNDED:
+                log.info("Handling requests on {} threads with {} queued requests at most", maxThreads, queueCapacity);
+                ThreadPoolExecutor bounded = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("http-bounded-"),
+                        new ThreadPoolExecutor.AbortPolicy());
+                bounded.allowCoreThreadTimeOut(true);
+                return bounded;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Looked up reflectively since the build targets Java 8.
+     *
+     * @return a virtual-thread-per-task executor, or {@code null} before Java 21
+     */
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+
+/**
+ * Reads from a replica when {@code oc.app.datasource.replica.url} is set: {@code @Transactional(readOnly = true)}
+ * methods run on a replica pool, everything else on the primary pool configured by {@code spring.datasource}. Spring
+ * Data declares its finders read-only, so repository reads made outside a service transaction go to the replica too.
+ * Each transaction picks its pool, which is why {@link ReplicaRoutingEnvironmentPostProcessor} turns open-in-view off.
+ * <p>
+ * Replicas lag behind, so a read-only method may not see a write that just committed; reads that must, such as
+ * the response to an edit, go through {@link ReplicaRoutingDataSource#usingPrimary}. Flyway and the schema tools
+ * run outside read-only transactions and only ever see the primary. What the replica returns is kept out of the
+ * second-level cache by {@link ReplicaRoutingJpaDialect}.
+ */
+@Configuration
+@ConditionalOnProperty("oc.app.datasource.replica.url")
+@Log4j2
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("oc.app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${oc.app.datasource.replica.url}") String url,
+                                              @Value("${oc.app.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${oc.app.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        log.info("Routing read-only transactions to {}", url);
+        HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                .url(url).username(username).password(password).build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Hands {@link ReplicaRoutingJpaDialect} to the entity manager factory before it falls back to the dialect of
+     * the vendor adapter; the transaction manager takes it from there.
+     */
+    @Bean
+    public static BeanPostProcessor replicaRoutingJpaDialectInstaller() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean) {
+                    ((AbstractEntityManagerFactoryBean) bean).setJpaDialect(new ReplicaRoutingJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.openclassrooms.starterjwt.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends the statements of read-only transactions to the replica pool and everything else to the primary one.
+ * <p>
+ * The pool is picked when a connection is opened, which Spring does before flagging the transaction read-only:
+ * this must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which opens it
+ * at the first statement instead.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Runs {@code reads} against the primary database, for reads that must see a write the replica may not have
+     * caught up with yet. Without a replica, this only runs {@code reads}.
+     */
+    public static <T> T usingPrimary(Supplier<T> reads) {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_ONLY.remove();
+            } else {
+                PRIMARY_ONLY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Whether a transaction with this read-only flag, started now on this thread, reads from the replica.
+     */
+    static boolean routesToReplica(boolean readOnly) {
+        return readOnly && PRIMARY_ONLY.get() == null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return routesToReplica(TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+                ? Target.REPLICA
+                : Target.PRIMARY;
+    }
+}
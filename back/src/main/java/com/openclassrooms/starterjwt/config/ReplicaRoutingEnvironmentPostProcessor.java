@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+
+/**
+ * Turns {@code spring.jpa.open-in-view} off when {@code oc.app.datasource.replica.url} is set.
+ * <p>
+ * An entity manager kept open for the whole request holds on to the first connection it gets, so a request that
+ * reads in a read-only transaction and then writes, such as creating a session with its participants, would send
+ * the write to the replica. Without it, every transaction gets its own connection from {@link ReplicaRoutingDataSource}.
+ */
+public class ReplicaRoutingEnvironmentPostProcessor implements EnvironmentPostProcessor {
+    static final String OPEN_IN_VIEW = "spring.jpa.open-in-view";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (environment.containsProperty("oc.app.datasource.replica.url")) {
+            environment.getPropertySources().addFirst(new MapPropertySource("replicaRouting",
+                    Collections.singletonMap(OPEN_IN_VIEW, "false")));
+        }
+    }
+}
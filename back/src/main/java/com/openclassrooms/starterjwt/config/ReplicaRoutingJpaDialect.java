@@ -0,0 +1,53 @@
+package com.openclassrooms.starterjwt.config;
+
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+
+/**
+ * Keeps what a replica returns out of the second-level cache: the transactions {@link ReplicaRoutingDataSource}
+ * sends to the replica still read the cache, but never put in it. The cache is shared with the transactions on the
+ * primary, which would otherwise be served the rows of a lagging replica, including right after a write evicted them.
+ */
+public class ReplicaRoutingJpaDialect extends HibernateJpaDialect {
+    static final String STORE_MODE = "javax.persistence.cache.storeMode";
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!ReplicaRoutingDataSource.routesToReplica(definition.isReadOnly())) {
+            return transactionData;
+        }
+        Object previousStoreMode = entityManager.getProperties().getOrDefault(STORE_MODE, CacheStoreMode.USE);
+        entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReplicaTransactionData(transactionData, entityManager, previousStoreMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaTransactionData) {
+            ReplicaTransactionData replicaData = (ReplicaTransactionData) transactionData;
+            replicaData.entityManager.setProperty(STORE_MODE, replicaData.previousStoreMode);
+            transactionData = replicaData.transactionData;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    private static class ReplicaTransactionData {
+        private final Object transactionData;
+
+        private final EntityManager entityManager;
+
+        private final Object previousStoreMode;
+
+        ReplicaTransactionData(Object transactionData, EntityManager entityManager, Object previousStoreMode) {
+            this.transactionData = transactionData;
+            this.entityManager = entityManager;
+            this.previousStoreMode = previousStoreMode;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.openclassrooms.starterjwt.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import javax.cache.CacheManager;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate's second-level cache: an in-process Caffeine cache behind JCache, one bounded region per cached
+ * entity or collection. Every region is created here and Hibernate refuses to start on a region it does not
+ * know, so no region is ever unbounded.
+ * <p>
+ * The cache is local to the JVM: instances sharing a database would each serve their own copy, hence the
+ * expiry that bounds how long a row written by another instance can be served.
+ * <p>
+ * Hit, miss and put counts are published per region under {@code hibernate.second.level.cache.*}.
+ */
+@Configuration
+@Log4j2
+public class SecondLevelCacheConfig {
+    public static final String SESSION_REGION = "session";
+    public static final String SESSION_USERS_REGION = "session.users";
+    public static final String TEACHER_REGION = "teacher";
+    public static final String USER_REGION = "user";
+
+    static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    private final CacheManager cacheManager;
+
+    public SecondLevelCacheConfig(@Value("${oc.app.l2cache.maxSize:10000}") long maxSize,
+                                  @Value("${oc.app.l2cache.ttlMs:600000}") long ttlMs) {
+        this.cacheManager = createCacheManager(maxSize, ttlMs);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, this.cacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.cacheManager.close();
+    }
+
+    /**
+     * A manager of its own rather than the provider's default one, so that two application contexts in the same
+     * JVM never share cached rows.
+     */
+    static CacheManager createCacheManager(long maxSize, long ttlMs) {
+        log.info("Caching up to {} entries per second-level cache region for {} ms", maxSize, ttlMs);
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+        for (String region : new String[] {
+                SESSION_REGION, SESSION_USERS_REGION, TEACHER_REGION, USER_REGION, QUERY_RESULTS_REGION}) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+            cacheManager.createCache(region, configuration);
+        }
+        // One entry per table; evicting one would let a stale query result through
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+}
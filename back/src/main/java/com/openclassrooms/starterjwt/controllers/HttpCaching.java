@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Conditional request support: controllers derive a strong ETag from a version query and answer
+ * {@code If-None-Match} with 304 before loading, mapping or serializing anything, and check
+ * {@code If-Match} against the same ETag before writing.
+ */
+final class HttpCaching {
+    /**
+     * Responses are per user, so shared caches must not keep them, and clients revalidate on every use.
+     */
+    static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private HttpCaching() {
+    }
+
+    static String etag(Object... versionParts) {
+        String version = Arrays.stream(versionParts).map(String::valueOf).collect(Collectors.joining(":"));
+        return "\"" + DigestUtils.md5DigestAsHex(version.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * @param ifMatch an {@code If-Match} header: {@code *} or a list of ETags, compared strongly
+     */
+    static boolean matches(String ifMatch, String etag) {
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_CONTROL).build();
+    }
+
+    static ResponseEntity.BodyBuilder ok(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CACHE_CONTROL);
+    }
+}
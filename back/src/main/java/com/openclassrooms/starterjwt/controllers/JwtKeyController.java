@@ -0,0 +1,98 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.payload.request.KeyRotationRequest;
+import com.openclassrooms.starterjwt.payload.response.JwtKeysResponse;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.security.jwt.JwtKeyRing;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.TokenAuthenticationCache;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+/**
+ * Rotates the keys tokens are signed with at runtime, for administrators only: rotate to a new key, wait for the
+ * tokens signed with the previous one to expire, then retire it.
+ * <p>
+ * The key ring lives in memory, so this only changes the instance called: call every instance, and update
+ * {@code oc.app.jwtKeyId}, {@code oc.app.jwtSecret} and {@code oc.app.jwtVerificationKeys} for the next restart.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/jwt/keys")
+@Log4j2
+public class JwtKeyController {
+    private final JwtUtils jwtUtils;
+    private final TokenAuthenticationCache authenticationCache;
+
+    public JwtKeyController(JwtUtils jwtUtils, TokenAuthenticationCache authenticationCache) {
+        this.jwtUtils = jwtUtils;
+        this.authenticationCache = authenticationCache;
+    }
+
+    @GetMapping()
+    public ResponseEntity<?> findAll() {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return ResponseEntity.ok().body(keys());
+    }
+
+    /**
+     * Signs new tokens with the given key; the previous one keeps verifying the tokens it signed until retired.
+     * A key id already in the ring is refused with 409, as tokens signed under it may still be cached.
+     */
+    @PostMapping()
+    public ResponseEntity<?> rotate(@Valid @RequestBody KeyRotationRequest request) {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            this.jwtUtils.getKeyRing().rotate(request.getKeyId(), request.getSecret());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse("Error: " + e.getMessage()));
+        }
+        log.info("Signing tokens with key {}", request.getKeyId());
+        return ResponseEntity.ok().body(keys());
+    }
+
+    /**
+     * Stops accepting the tokens signed with the given key, including the ones already authenticated once.
+     */
+    @DeleteMapping("{keyId}")
+    public ResponseEntity<?> retire(@PathVariable("keyId") String keyId) {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            if (!this.jwtUtils.getKeyRing().retire(keyId)) {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+        this.authenticationCache.evictAll();
+        log.info("Retired key {}", keyId);
+        return ResponseEntity.ok().body(keys());
+    }
+
+    private JwtKeysResponse keys() {
+        JwtKeyRing keyRing = this.jwtUtils.getKeyRing();
+        return new JwtKeysResponse(keyRing.getActiveKeyId(), keyRing.getKeyIds());
+    }
+
+    private static boolean isAdmin() {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return principal instanceof UserDetailsImpl && Boolean.TRUE.equals(((UserDetailsImpl) principal).getAdmin());
+    }
+}
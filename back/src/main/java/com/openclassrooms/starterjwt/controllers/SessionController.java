@@ -1,52 +1,180 @@
 package com.openclassrooms.starterjwt.controllers;
 
-
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.config.ReplicaRoutingDataSource;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPatchDto;
+import com.openclassrooms.starterjwt.exception.ImportException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.repository.projection.SessionCollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import com.openclassrooms.starterjwt.services.SessionBulkService;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Date;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    static final int STREAM_CHUNK_SIZE = 500;
+
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+
+    /**
+     * An export writes the whole schedule, for as long as that takes, so it has no asynchronous request timeout.
+     */
+    static final long EXPORT_TIMEOUT = -1;
+
+    private static final String EXPORT_TIMEOUT_KEY = SessionController.class.getName() + ".exportTimeout";
+
+    /**
+     * Sets {@link #EXPORT_TIMEOUT} on the one request it is registered for, just before its response goes
+     * asynchronous; other requests keep spring.mvc.async.request-timeout.
+     */
+    private static final CallableProcessingInterceptor EXPORT_TIMEOUT_SETTER = new CallableProcessingInterceptor() {
+        @Override
+        public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+            ((AsyncWebRequest) request).setTimeout(EXPORT_TIMEOUT);
+        }
+    };
+
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final SessionBulkService sessionBulkService;
+    private final ObjectMapper objectMapper;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             SessionBulkService sessionBulkService,
+                             ObjectMapper objectMapper) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.sessionBulkService = sessionBulkService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            Long sessionId = Long.valueOf(id);
+            Long version = this.sessionService.findVersion(sessionId);
+
+            if (version == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            String etag = HttpCaching.etag(sessionId, version);
+            if (request.checkNotModified(etag)) {
+                return HttpCaching.notModified(etag);
+            }
+
+            SessionSummary session = this.sessionService.findSummaryById(sessionId);
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            return HttpCaching.ok(etag).body(withParticipants(session));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(WebRequest request) {
+        SessionCollectionVersion version = this.sessionService.getCollectionVersion();
+        String etag = HttpCaching.etag(version.getCount(), version.getIdSum(), version.getVersionSum());
+        if (request.checkNotModified(etag)) {
+            return HttpCaching.notModified(etag);
+        }
+
+        List<SessionSummary> sessions = this.sessionService.findAllSummaries();
+        Map<Long, List<Long>> participants = this.sessionService.findAllParticipantIds();
+
+        return HttpCaching.ok(etag).body(this.sessionMapper.toDto(sessions, participants));
+    }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+    /**
+     * The body of {@link #findAll(WebRequest)}, written while the sessions are read, {@value #STREAM_CHUNK_SIZE}
+     * at a time, so memory use does not grow with their number.
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll(WebRequest request) {
+        SessionCollectionVersion version = this.sessionService.getCollectionVersion();
+        String etag = HttpCaching.etag(version.getCount(), version.getIdSum(), version.getVersionSum());
+        if (request.checkNotModified(etag)) {
+            return HttpCaching.notModified(etag);
+        }
+
+        return HttpCaching.ok(etag).contentType(MediaType.APPLICATION_JSON).body(this::writeAll);
+    }
+
+    private void writeAll(OutputStream out) throws IOException {
+        try (JsonGenerator json = this.objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartArray();
+            this.sessionService.forEachChunk(STREAM_CHUNK_SIZE, (sessions, participants) -> {
+                try {
+                    for (SessionDto session : this.sessionMapper.toDto(sessions, participants)) {
+                        json.writeObject(session);
+                    }
+                    json.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<?> findPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "size", required = false) Integer size,
+                                      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                      @RequestParam(value = "teacherId", required = false) Long teacherId,
+                                      @RequestParam(value = "view", required = false) String view,
+                                      Principal principal) {
+        return ResponseEntity.ok().body(SessionPages.find(cursor, size, SessionPages.view(view), principal,
+                (after, limit) -> this.sessionService.findPage(after, from, to, teacherId, limit),
+                this.sessionService, this.sessionMapper));
     }
 
     @PostMapping()
@@ -59,26 +187,86 @@ public class SessionController {
         return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
+    /**
+     * Imports a whole schedule, one session per line, in a single transaction.
+     */
+    @PostMapping(value = "/import", consumes = {NDJSON, CSV})
+    public ResponseEntity<?> importSessions(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                            InputStream body) {
+        SessionBulkService.Format format = MediaType.parseMediaType(CSV).isCompatibleWith(contentType)
+                ? SessionBulkService.Format.CSV
+                : SessionBulkService.Format.NDJSON;
+        Charset charset = contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+        try {
+            int imported = this.sessionBulkService.importSessions(
+                    new BufferedReader(new InputStreamReader(body, charset)), format);
+
+            return ResponseEntity.ok().body(new MessageResponse("Imported " + imported + " sessions"));
+        } catch (ImportException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportSessions(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format, WebRequest request) {
+        SessionBulkService.Format exportFormat;
+        try {
+            exportFormat = SessionBulkService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_TIMEOUT_KEY, EXPORT_TIMEOUT_SETTER);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat == SessionBulkService.Format.CSV ? CSV : NDJSON))
+                .body(out -> this.sessionBulkService.exportSessions(out, exportFormat));
+    }
+
+    /**
+     * Replaces the session. Participants are replaced only when the body lists them, so an edit from a form that
+     * leaves them out keeps the bookings taken meanwhile. With {@code If-Match}, the edit only applies to the
+     * version the ETag was read with.
+     */
     @PutMapping("{id}")
-    public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionDto sessionDto) {
+    public ResponseEntity<?> update(@PathVariable("id") String id,
+                                    @Valid @RequestBody SessionDto sessionDto,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Session session = this.sessionService.update(Long.parseLong(id), this.sessionMapper.toEntity(sessionDto));
+            Long sessionId = Long.valueOf(id);
+            Session session = this.sessionMapper.toEntity(sessionDto);
+            if (sessionDto.getUsers() == null) {
+                session.setUsers(null);
+            }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            this.sessionService.update(sessionId, session, expectedVersion(sessionId, ifMatch));
+            return updated(sessionId);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
-    @DeleteMapping("{id}")
-    public ResponseEntity<?> save(@PathVariable("id") String id) {
+    /**
+     * Changes the fields present in the body only, writing just the columns that differ.
+     */
+    @PatchMapping("{id}")
+    public ResponseEntity<?> patch(@PathVariable("id") String id,
+                                   @Valid @RequestBody SessionPatchDto patch,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            Long sessionId = Long.valueOf(id);
 
-            if (session == null) {
-                return ResponseEntity.notFound().build();
-            }
+            this.sessionService.patch(sessionId, session -> this.sessionMapper.patch(patch, session),
+                    expectedVersion(sessionId, ifMatch));
+            return updated(sessionId);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
+    @DeleteMapping("{id}")
+    public ResponseEntity<?> save(@PathVariable("id") String id) {
+        try {
             this.sessionService.delete(Long.parseLong(id));
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
@@ -107,4 +295,81 @@ public class SessionController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @PostMapping("{id}/waitlist/{userId}")
+    public ResponseEntity<?> participateOrWait(@PathVariable("id") String id, @PathVariable("userId") String userId) {
+        try {
+            if (this.sessionService.participateOrWait(Long.parseLong(id), Long.parseLong(userId))) {
+                return ResponseEntity.ok().body(new MessageResponse("Booked"));
+            }
+
+            return ResponseEntity.accepted().body(new MessageResponse("Waitlisted"));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("{id}/waitlist/{userId}")
+    public ResponseEntity<?> leaveWaitlist(@PathVariable("id") String id, @PathVariable("userId") String userId) {
+        try {
+            this.sessionService.leaveWaitlist(Long.parseLong(id), Long.parseLong(userId));
+
+            return ResponseEntity.ok().build();
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("{id}/waitlist")
+    public ResponseEntity<?> findWaitlist(@PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok().body(this.sessionService.findWaitlist(Long.valueOf(id)));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * @return the version the {@code If-Match} ETag was computed from, {@code null} without {@code If-Match}
+     * @throws PreconditionFailedException if the ETag is not the one of the current version
+     */
+    private Long expectedVersion(Long sessionId, String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+
+        // Checked against the primary database, which the edit is written to
+        Long version = ReplicaRoutingDataSource.usingPrimary(() -> this.sessionService.findVersion(sessionId));
+        if (version == null) {
+            throw new NotFoundException();
+        }
+        if (!HttpCaching.matches(ifMatch, HttpCaching.etag(sessionId, version))) {
+            throw new PreconditionFailedException();
+        }
+        return version;
+    }
+
+    /**
+     * The edited session with its new ETag, ready for the next conditional edit. Read from the primary database,
+     * since a replica may not have the edit yet.
+     */
+    private ResponseEntity<?> updated(Long sessionId) {
+        return ReplicaRoutingDataSource.usingPrimary(() -> {
+            Long version = this.sessionService.findVersion(sessionId);
+            SessionSummary session = this.sessionService.findSummaryById(sessionId);
+
+            if (version == null || session == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok().eTag(HttpCaching.etag(sessionId, version)).body(withParticipants(session));
+        });
+    }
+
+    private SessionDto withParticipants(SessionSummary session) {
+        List<Long> users = this.sessionService.findParticipantIds(Collections.singletonList(session))
+                .getOrDefault(session.getId(), Collections.emptyList());
+
+        return this.sessionMapper.toDto(session, users);
+    }
 }
@@ -0,0 +1,74 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.dto.SessionCursor;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import com.openclassrooms.starterjwt.services.SessionService;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keyset pages of sessions ordered by ({@code date}, {@code id}), shared by the session listing and the sessions
+ * of a user. The query is asked for one row more than the page size, which tells whether a next page exists
+ * without a count query.
+ * <p>
+ * The {@code full} view lists the participant ids of each session; the {@code compact} view only the number of
+ * participants, kept on the session row, and whether the caller is one of them, which a single query answers for
+ * the whole page.
+ */
+final class SessionPages {
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
+    enum View { FULL, COMPACT }
+
+    interface PageQuery {
+        List<SessionSummary> find(SessionCursor after, int limit);
+    }
+
+    private SessionPages() {
+    }
+
+    /**
+     * @throws BadRequestException if the view is neither {@code full} nor {@code compact}
+     */
+    static View view(String view) {
+        if (view == null || view.isEmpty()) {
+            return View.FULL;
+        }
+        try {
+            return View.valueOf(view.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    static SessionPageDto<?> find(String cursor, Integer size, View view, Principal caller, PageQuery query,
+                                  SessionService sessionService, SessionMapper sessionMapper) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        SessionCursor after = cursor == null || cursor.isEmpty() ? null : SessionCursor.decode(cursor);
+
+        List<SessionSummary> sessions = query.find(after, pageSize + 1);
+
+        String nextCursor = null;
+        if (sessions.size() > pageSize) {
+            sessions = sessions.subList(0, pageSize);
+            nextCursor = SessionCursor.of(sessions.get(pageSize - 1)).encode();
+        }
+
+        if (view == View.COMPACT) {
+            String email = caller == null ? null : caller.getName();
+            return new SessionPageDto<>(sessionMapper.toCompactDto(sessions,
+                    sessionService.findParticipatedSessionIds(email, sessions)), nextCursor);
+        }
+
+        Map<Long, List<Long>> participants = sessionService.findParticipantIds(sessions);
+
+        return new SessionPageDto<>(sessionMapper.toDto(sessions, participants), nextCursor);
+    }
+}
@@ -2,9 +2,11 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -37,9 +39,15 @@ public class TeacherController {
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
+    public ResponseEntity<?> findAll(WebRequest request) {
+        CollectionVersion version = this.teacherService.getCollectionVersion();
+        String etag = HttpCaching.etag(version.getCount(), version.getIdSum(), version.getLastUpdated());
+        if (request.checkNotModified(etag)) {
+            return HttpCaching.notModified(etag);
+        }
+
         List<Teacher> teachers = this.teacherService.findAll();
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+        return HttpCaching.ok(etag).body(this.teacherMapper.toDto(teachers));
     }
 }
@@ -1,15 +1,24 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.dto.UserPurgeDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.UserPurgeService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Objects;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Date;
+import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -17,12 +26,21 @@ import java.util.Objects;
 public class UserController {
     private final UserMapper userMapper;
     private final UserService userService;
+    private final SessionService sessionService;
+    private final SessionMapper sessionMapper;
+    private final UserPurgeService userPurgeService;
 
 
     public UserController(UserService userService,
-                             UserMapper userMapper) {
+                             UserMapper userMapper,
+                             SessionService sessionService,
+                             SessionMapper sessionMapper,
+                             UserPurgeService userPurgeService) {
         this.userMapper = userMapper;
         this.userService = userService;
+        this.sessionService = sessionService;
+        this.sessionMapper = sessionMapper;
+        this.userPurgeService = userPurgeService;
     }
 
     @GetMapping("/{id}")
@@ -40,25 +58,68 @@ public class UserController {
         }
     }
 
-    @DeleteMapping("{id}")
-    public ResponseEntity<?> save(@PathVariable("id") String id) {
+    /**
+     * The sessions the user participates in, paginated like {@code GET /api/session/page}.
+     */
+    @GetMapping("/{id}/sessions")
+    public ResponseEntity<?> findSessions(@PathVariable("id") String id,
+                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                          @RequestParam(value = "size", required = false) Integer size,
+                                          @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                          @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                          @RequestParam(value = "view", required = false) String view,
+                                          Principal principal) {
         try {
-            User user = this.userService.findById(Long.valueOf(id));
+            Long userId = Long.valueOf(id);
 
-            if (user == null) {
-                return ResponseEntity.notFound().build();
-            }
+            return ResponseEntity.ok().body(SessionPages.find(cursor, size, SessionPages.view(view), principal,
+                    (after, limit) -> this.sessionService.findUserPage(userId, after, from, to, limit),
+                    this.sessionService, this.sessionMapper));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
+    @DeleteMapping("{id}")
+    public ResponseEntity<?> save(@PathVariable("id") String id) {
+        try {
             UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
-            if(!Objects.equals(userDetails.getUsername(), user.getEmail())) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-
-            this.userService.delete(Long.parseLong(id));
+            this.userService.delete(Long.parseLong(id), userDetails.getUsername());
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    /**
+     * Deletes the listed users in the background, for administrators only. Poll the returned location for progress.
+     */
+    @PostMapping("/purge")
+    public ResponseEntity<?> purge(@RequestBody List<Long> userIds) {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        UserPurgeDto purge = this.userPurgeService.purge(userIds);
+        return ResponseEntity.accepted().location(URI.create("/api/user/purge/" + purge.getId())).body(purge);
+    }
+
+    @GetMapping("/purge/{id}")
+    public ResponseEntity<?> findPurge(@PathVariable("id") String id) {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        UserPurgeDto purge = this.userPurgeService.find(id);
+        if (purge == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().body(purge);
+    }
+
+    private static boolean isAdmin() {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return principal instanceof UserDetailsImpl && Boolean.TRUE.equals(((UserDetailsImpl) principal).getAdmin());
+    }
 }
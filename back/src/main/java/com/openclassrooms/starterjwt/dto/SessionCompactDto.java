@@ -0,0 +1,36 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * A session in a listing: how many seats are taken and whether the caller has one, rather than every participant id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionCompactDto {
+    private Long id;
+
+    private String name;
+
+    private Date date;
+
+    private Long teacher_id;
+
+    private String description;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private Integer capacity;
+
+    private int participantCount;
+
+    private boolean callerParticipates;
+}
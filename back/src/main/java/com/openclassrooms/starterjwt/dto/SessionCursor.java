@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.dto;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset position in the session listing, ordered by ({@code date}, {@code id}).
+ */
+@Getter
+@AllArgsConstructor
+public class SessionCursor {
+    private final Date date;
+
+    private final Long id;
+
+    public static SessionCursor of(SessionSummary session) {
+        return new SessionCursor(session.getDate(), session.getId());
+    }
+
+    public String encode() {
+        String raw = this.date.getTime() + ":" + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SessionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 0) {
+                throw new BadRequestException();
+            }
+
+            return new SessionCursor(new Date(Long.parseLong(raw.substring(0, separator))),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
+    }
+}
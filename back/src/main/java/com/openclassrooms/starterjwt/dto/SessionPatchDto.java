@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
+import java.util.Date;
+
+/**
+ * Partial update of a session: absent fields are left as they are. Participants are not part of it, they change
+ * through the participation endpoints only.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionPatchDto {
+    @Size(min = 1, max = 50)
+    private String name;
+
+    private Date date;
+
+    private Long teacher_id;
+
+    @Size(max = 2500)
+    private String description;
+
+    @Min(1)
+    private Integer capacity;
+}
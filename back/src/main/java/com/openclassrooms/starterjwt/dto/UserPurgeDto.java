@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a purge: users are counted as processed once their chunk is done, deleted or not.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPurgeDto {
+    public enum Status { QUEUED, RUNNING, DONE }
+
+    private String id;
+
+    private Status status;
+
+    private int requested;
+
+    private int processed;
+
+    private int deleted;
+
+    private int failed;
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.starterjwt.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Rejects a bulk import, naming the input line at fault.
+ */
+@ResponseStatus(value= HttpStatus.BAD_REQUEST)
+public class ImportException extends RuntimeException {
+    private final int line;
+
+    public ImportException(int line, String reason) {
+        super("Line " + line + ": " + reason);
+        this.line = line;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,8 @@
+package com.openclassrooms.starterjwt.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value= HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+}
@@ -1,19 +1,32 @@
 package com.openclassrooms.starterjwt.mapper;
 
+import com.openclassrooms.starterjwt.dto.SessionCompactDto;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPatchDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.mapstruct.BeanMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 import org.mapstruct.Mappings;
+import org.mapstruct.NullValuePropertyMappingStrategy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -27,11 +40,48 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
-            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.getReference(sessionDto.getTeacher_id()) : null)"),
+            @Mapping(target = "users", expression = "java(toUsers(sessionDto.getUsers()))"),
+            @Mapping(target = "version", ignore = true),
+            @Mapping(target = "participantCount", ignore = true),
     })
     public abstract Session toEntity(SessionDto sessionDto);
 
+    /**
+     * Copies the fields present in the patch onto the session, leaving the others as they are.
+     */
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mappings({
+            @Mapping(target = "teacher", expression = "java(patch.getTeacher_id() != null ? this.teacherService.getReference(patch.getTeacher_id()) : session.getTeacher())"),
+            @Mapping(target = "id", ignore = true),
+            @Mapping(target = "users", ignore = true),
+            @Mapping(target = "createdAt", ignore = true),
+            @Mapping(target = "updatedAt", ignore = true),
+            @Mapping(target = "version", ignore = true),
+            @Mapping(target = "participantCount", ignore = true),
+    })
+    public abstract void patch(SessionPatchDto patch, @MappingTarget Session session);
+
+    /**
+     * Loads the participants in one query, keeping the requested order and dropping duplicate ids.
+     *
+     * @throws BadRequestException if any id does not match a user
+     */
+    protected List<User> toUsers(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        Map<Long, User> usersById = this.userService.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        if (usersById.size() != ids.size()) {
+            throw new BadRequestException();
+        }
+
+        return ids.stream().map(usersById::get).collect(Collectors.toList());
+    }
+
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
@@ -39,4 +89,29 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
             @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
     })
     public abstract SessionDto toDto(Session session);
+
+
+    @Mappings({
+            @Mapping(source = "summary.teacherId", target = "teacher_id"),
+            @Mapping(source = "users", target = "users"),
+    })
+    public abstract SessionDto toDto(SessionSummary summary, List<Long> users);
+
+    public List<SessionDto> toDto(List<SessionSummary> summaries, Map<Long, List<Long>> participants) {
+        return summaries.stream()
+                .map(summary -> toDto(summary, participants.getOrDefault(summary.getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
+    }
+
+    @Mappings({
+            @Mapping(source = "summary.teacherId", target = "teacher_id"),
+            @Mapping(source = "callerParticipates", target = "callerParticipates"),
+    })
+    public abstract SessionCompactDto toCompactDto(SessionSummary summary, boolean callerParticipates);
+
+    public List<SessionCompactDto> toCompactDto(List<SessionSummary> summaries, Set<Long> participated) {
+        return summaries.stream()
+                .map(summary -> toCompactDto(summary, participated.contains(summary.getId())))
+                .collect(Collectors.toList());
+    }
 }
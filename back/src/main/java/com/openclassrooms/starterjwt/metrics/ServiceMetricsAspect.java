@@ -0,0 +1,59 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of the {@code @Service} beans as {@value #METRIC}, tagged by class, method and outcome.
+ * Timers are registered once per method, so a call only costs a map lookup and two clock reads.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+    static final String METRIC = "yoga.service";
+
+    private final MeterRegistry registry;
+
+    private final ConcurrentMap<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.openclassrooms.starterjwt..*(..)) && within(@org.springframework.stereotype.Service *)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer[] methodTimers = this.timers.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(), this::register);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            return result;
+        } finally {
+            methodTimers[success ? 0 : 1].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer[] register(Method method) {
+        return new Timer[] {register(method, "success"), register(method, "error")};
+    }
+
+    private Timer register(Method method, String outcome) {
+        return Timer.builder(METRIC)
+                .description("Service method execution time")
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .register(this.registry);
+    }
+}
@@ -1,13 +1,18 @@
 package com.openclassrooms.starterjwt.models;
 
 
+import com.openclassrooms.starterjwt.config.SecondLevelCacheConfig;
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -16,8 +21,14 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "SESSIONS")
+@Table(name = "SESSIONS", indexes = {
+        @Index(name = "IDX_SESSIONS_DATE_ID", columnList = "date, id"),
+        @Index(name = "IDX_SESSIONS_TEACHER_DATE_ID", columnList = "teacher_id, date, id")
+})
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.SESSION_REGION)
+@DynamicUpdate
 @Data
 @Accessors(chain = true)
 @EqualsAndHashCode(of = {"id"})
@@ -43,13 +54,17 @@ public class Session {
 
     @OneToOne
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
+    @ToString.Exclude
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.SESSION_USERS_REGION)
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
-            inverseJoinColumns = @JoinColumn( name = "user_id" ) )
+            inverseJoinColumns = @JoinColumn( name = "user_id" ),
+            indexes = @Index(name = "IDX_PARTICIPATE_USER_SESSION", columnList = "user_id, session_id") )
+    @ToString.Exclude
     private List<User> users;
 
     @CreatedDate
@@ -59,4 +74,19 @@ public class Session {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    @Version
+    private Long version;
+
+    /**
+     * Maximum number of participants, unlimited when {@code null}.
+     */
+    @Min(1)
+    private Integer capacity;
+
+    /**
+     * Seats taken, maintained by the booking statements in {@code SessionRepository} and never written from the entity.
+     */
+    @Column(name = "participant_count", insertable = false, updatable = false, columnDefinition = "int default 0 not null")
+    private int participantCount;
 }
@@ -0,0 +1,17 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import javax.validation.constraints.NotBlank;
+
+import lombok.Data;
+
+@Data
+public class KeyRotationRequest {
+  @NotBlank
+  private String keyId;
+
+  /**
+   * Base64 encoded, like {@code oc.app.jwtSecret}.
+   */
+  @NotBlank
+  private String secret;
+}
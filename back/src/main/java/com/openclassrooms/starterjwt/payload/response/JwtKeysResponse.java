@@ -0,0 +1,22 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import java.util.Set;
+
+public class JwtKeysResponse {
+  private final String activeKeyId;
+
+  private final Set<String> keyIds;
+
+  public JwtKeysResponse(String activeKeyId, Set<String> keyIds) {
+    this.activeKeyId = activeKeyId;
+    this.keyIds = keyIds;
+  }
+
+  public String getActiveKeyId() {
+    return activeKeyId;
+  }
+
+  public Set<String> getKeyIds() {
+    return keyIds;
+  }
+}
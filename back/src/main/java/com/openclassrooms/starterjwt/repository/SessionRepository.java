@@ -1,9 +1,248 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.projection.SessionCollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.SessionParticipant;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface SessionRepository  extends JpaRepository<Session, Long> {
+public interface SessionRepository  extends JpaRepository<Session, Long>, SessionRepositoryCustom {
+    String SUMMARY_SELECT = "select s.id as id, s.name as name, s.date as date, s.description as description,"
+            + " t.id as teacherId, s.createdAt as createdAt, s.updatedAt as updatedAt, s.capacity as capacity,"
+            + " s.participantCount as participantCount"
+            + " from Session s left join s.teacher t";
+
+    String STREAM_FETCH_SIZE = "500";
+
+    /**
+     * Query spaces of the native statements, the tables they write: Hibernate then evicts the second-level cache
+     * regions of those tables only, where it would otherwise clear every region.
+     */
+    String SESSIONS_SPACE = "SESSIONS";
+
+    /**
+     * No cached entity lives in this table, so nothing is evicted; the cached participants of the session are
+     * locked beforehand instead, see {@link SessionRepositoryCustom#lockCachedParticipants(Long)}.
+     */
+    String PARTICIPATE_SPACE = "PARTICIPATE";
+
+    @Query(SUMMARY_SELECT)
+    List<SessionSummary> findAllSummaries();
+
+    /**
+     * Reads the sessions from a cursor, {@value #STREAM_FETCH_SIZE} rows per round trip. Must be consumed, and
+     * closed, inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SUMMARY_SELECT + " order by s.id")
+    Stream<SessionSummary> streamAllSummaries();
+
+    @Query(SUMMARY_SELECT + " where s.id = :id")
+    Optional<SessionSummary> findSummaryById(@Param("id") Long id);
+
+    @Query(SUMMARY_SELECT
+            + " where (:from is null or s.date >= :from)"
+            + " and (:to is null or s.date < :to)"
+            + " and (:teacherId is null or s.teacher.id = :teacherId)"
+            + " order by s.date asc, s.id asc")
+    List<SessionSummary> findFirstPage(@Param("from") Date from,
+                                       @Param("to") Date to,
+                                       @Param("teacherId") Long teacherId,
+                                       Pageable pageable);
+
+    @Query(SUMMARY_SELECT
+            + " where (s.date > :afterDate or (s.date = :afterDate and s.id > :afterId))"
+            + " and (:from is null or s.date >= :from)"
+            + " and (:to is null or s.date < :to)"
+            + " and (:teacherId is null or s.teacher.id = :teacherId)"
+            + " order by s.date asc, s.id asc")
+    List<SessionSummary> findPageAfter(@Param("afterDate") Date afterDate,
+                                       @Param("afterId") Long afterId,
+                                       @Param("from") Date from,
+                                       @Param("to") Date to,
+                                       @Param("teacherId") Long teacherId,
+                                       Pageable pageable);
+
+    /**
+     * Sessions the user participates in, driven by the participation index on {@code user_id}.
+     */
+    @Query(SUMMARY_SELECT + " join s.users u"
+            + " where u.id = :userId"
+            + " and (:from is null or s.date >= :from)"
+            + " and (:to is null or s.date < :to)"
+            + " order by s.date asc, s.id asc")
+    List<SessionSummary> findUserFirstPage(@Param("userId") Long userId,
+                                           @Param("from") Date from,
+                                           @Param("to") Date to,
+                                           Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " join s.users u"
+            + " where u.id = :userId"
+            + " and (s.date > :afterDate or (s.date = :afterDate and s.id > :afterId))"
+            + " and (:from is null or s.date >= :from)"
+            + " and (:to is null or s.date < :to)"
+            + " order by s.date asc, s.id asc")
+    List<SessionSummary> findUserPageAfter(@Param("userId") Long userId,
+                                           @Param("afterDate") Date afterDate,
+                                           @Param("afterId") Long afterId,
+                                           @Param("from") Date from,
+                                           @Param("to") Date to,
+                                           Pageable pageable);
+
+    @Query(value = "select p.session_id as sessionId, p.user_id as userId from PARTICIPATE p",
+            nativeQuery = true)
+    List<SessionParticipant> findAllParticipants();
+
+    @Query(value = "select p.session_id as sessionId, p.user_id as userId from PARTICIPATE p"
+            + " where p.session_id in (:sessionIds)",
+            nativeQuery = true)
+    List<SessionParticipant> findParticipants(@Param("sessionIds") Collection<Long> sessionIds);
+
+    /**
+     * @return the ids among {@code sessionIds} of the sessions the user with this email participates in
+     */
+    @Query("select s.id from Session s join s.users u where u.email = :email and s.id in (:sessionIds)")
+    List<Long> findParticipatedSessionIds(@Param("email") String email, @Param("sessionIds") Collection<Long> sessionIds);
+
+    /**
+     * Adds the user to the session unless already participating.
+     *
+     * @return 1 if a row was inserted, 0 if the session or user does not exist or the user already participates
+     */
+    @Transactional
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = PARTICIPATE_SPACE))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "insert into PARTICIPATE (session_id, user_id)"
+            + " select s.id, u.id from SESSIONS s, USERS u"
+            + " where s.id = :sessionId and u.id = :userId"
+            + " and not exists (select 1 from PARTICIPATE p where p.session_id = :sessionId and p.user_id = :userId)",
+            nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Takes a seat if the session has one left. The row lock it acquires serializes the bookings of the session
+     * until the transaction ends, so the participation checks that follow in the same transaction cannot race.
+     *
+     * @return 1 if a seat was taken, 0 if the session is full or does not exist
+     */
+    @Transactional
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = SESSIONS_SPACE))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update SESSIONS set participant_count = participant_count + 1, version = version + 1,"
+            + " updated_at = current_timestamp"
+            + " where id = :id and (capacity is null or participant_count < capacity)",
+            nativeQuery = true)
+    int reserveSeat(@Param("id") Long id);
+
+    /**
+     * Gives back the seat of a participant, locking the session row before the participation row as
+     * {@link #reserveSeat(Long)} does.
+     *
+     * @return 1 if a seat was released, 0 if the session does not exist or the user is not participating
+     */
+    @Transactional
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = SESSIONS_SPACE))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update SESSIONS set participant_count = participant_count - 1, version = version + 1,"
+            + " updated_at = current_timestamp"
+            + " where id = :sessionId"
+            + " and exists (select 1 from PARTICIPATE p where p.session_id = :sessionId and p.user_id = :userId)",
+            nativeQuery = true)
+    int releaseSeat(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Recounts the seats taken after the participants were written through the entity.
+     */
+    @Transactional
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = SESSIONS_SPACE))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update SESSIONS set participant_count ="
+            + " (select count(*) from PARTICIPATE p where p.session_id = :id) where id = :id",
+            nativeQuery = true)
+    int syncParticipantCount(@Param("id") Long id);
+
+    /**
+     * Locks the session row until the transaction ends, as the seat statements do.
+     *
+     * @return the session id, empty if the session does not exist
+     */
+    @Query(value = "select id from SESSIONS where id = :id for update", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    @Query(value = "select count(*) from PARTICIPATE where session_id = :sessionId and user_id = :userId",
+            nativeQuery = true)
+    int countParticipation(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * @return the number of participation rows removed, 0 if the user was not participating
+     */
+    @Transactional
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = PARTICIPATE_SPACE))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "delete from PARTICIPATE where session_id = :sessionId and user_id = :userId",
+            nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Query("select distinct s.id from Session s join s.users u where u.id in (:userIds) order by s.id")
+    List<Long> findIdsByParticipants(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Gives back every seat the users hold in the sessions, locking the session rows in id order before the
+     * participation rows as {@link #reserveSeat(Long)} does.
+     */
+    @Transactional
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = SESSIONS_SPACE))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update SESSIONS set participant_count = participant_count"
+            + " - (select count(*) from PARTICIPATE p where p.session_id = SESSIONS.id and p.user_id in (:userIds)),"
+            + " version = version + 1, updated_at = current_timestamp"
+            + " where id in (:sessionIds)",
+            nativeQuery = true)
+    int releaseSeats(@Param("sessionIds") Collection<Long> sessionIds, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * @return the number of participation rows removed
+     */
+    @Transactional
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = PARTICIPATE_SPACE))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "delete from PARTICIPATE where session_id in (:sessionIds) and user_id in (:userIds)",
+            nativeQuery = true)
+    int removeParticipants(@Param("sessionIds") Collection<Long> sessionIds, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Deletes the session without loading it. Hibernate removes its participation rows in the same bulk operation
+     * and evicts the cached sessions and participant lists.
+     *
+     * @return the number of sessions deleted, 0 if the session does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Session s where s.id = :id")
+    int removeById(@Param("id") Long id);
+
+    @Query("select s.version from Session s where s.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select count(s) as count, coalesce(sum(s.id), 0) as idSum, max(s.updatedAt) as lastUpdated,"
+            + " coalesce(sum(s.version), 0) as versionSum from Session s")
+    SessionCollectionVersion findCollectionVersion();
 }
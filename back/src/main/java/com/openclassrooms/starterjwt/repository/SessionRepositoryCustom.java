@@ -0,0 +1,11 @@
+package com.openclassrooms.starterjwt.repository;
+
+public interface SessionRepositoryCustom {
+
+    /**
+     * Locks the cached participants of the session until the transaction ends, as Hibernate does before writing
+     * the collection itself: readers go to the database meanwhile, and the cache is refilled after the commit.
+     * To be called, in the writing transaction, before the native statements on {@code PARTICIPATE}.
+     */
+    void lockCachedParticipants(Long sessionId);
+}
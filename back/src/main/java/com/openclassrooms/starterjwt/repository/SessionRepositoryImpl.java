@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import org.hibernate.cache.spi.access.CollectionDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+class SessionRepositoryImpl implements SessionRepositoryCustom {
+    private static final String PARTICIPANTS_ROLE = Session.class.getName() + ".users";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void lockCachedParticipants(Long sessionId) {
+        SessionImplementor session = this.entityManager.unwrap(SessionImplementor.class);
+        CollectionPersister persister = session.getFactory().getMetamodel().collectionPersister(PARTICIPANTS_ROLE);
+        if (!persister.hasCache()) {
+            return;
+        }
+
+        CollectionDataAccess cache = persister.getCacheAccessStrategy();
+        Object key = cache.generateCacheKey(sessionId, persister, session.getFactory(), session.getTenantIdentifier());
+        SoftLock lock = cache.lockItem(session, key, null);
+        session.getActionQueue().registerProcess((success, completed) -> cache.unlockItem(completed, key, lock));
+    }
+}
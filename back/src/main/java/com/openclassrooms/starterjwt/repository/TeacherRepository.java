@@ -1,9 +1,13 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface TeacherRepository  extends JpaRepository<Teacher, Long> {
+    @Query("select count(t) as count, coalesce(sum(t.id), 0) as idSum, max(t.updatedAt) as lastUpdated from Teacher t")
+    CollectionVersion findCollectionVersion();
 }
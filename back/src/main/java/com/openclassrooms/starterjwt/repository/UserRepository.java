@@ -1,15 +1,50 @@
 package com.openclassrooms.starterjwt.repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.openclassrooms.starterjwt.models.User;
 
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+  /**
+   * Cached, as the authentication filter looks the user up on every request its token cache misses.
+   */
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Optional<User> findByEmail(String email);
 
   Boolean existsByEmail(String email); 
+
+  boolean existsByIdAndEmail(Long id, String email);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update User u set u.password = :password where u.email = :email")
+  int updatePassword(@Param("email") String email, @Param("password") String password);
+
+  /**
+   * Deletes the account without loading it, provided it belongs to {@code email}.
+   *
+   * @return the number of users deleted, 0 if the user does not exist or has another email
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from User u where u.id = :id and u.email = :email")
+  int removeByIdAndEmail(@Param("id") Long id, @Param("email") String email);
+
+  /**
+   * @return the number of users deleted, the ids that do not exist being skipped
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from User u where u.id in (:ids)")
+  int removeAllById(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,50 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    /**
+     * The next waiter of the session, read from the head of the {@code (session_id, id)} index.
+     */
+    Optional<WaitlistEntry> findFirstBySessionIdOrderByIdAsc(Long sessionId);
+
+    boolean existsBySessionIdAndUserId(Long sessionId, Long userId);
+
+    @Query("select w.userId from WaitlistEntry w where w.sessionId = :sessionId order by w.id asc")
+    List<Long> findUserIds(@Param("sessionId") Long sessionId);
+
+    /**
+     * @return the number of entries removed, 0 if the user was not waiting
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId and w.userId = :userId")
+    int deleteEntry(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId")
+    int deleteBySession(@Param("sessionId") Long sessionId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from WaitlistEntry w where w.userId = :userId")
+    int deleteByUser(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from WaitlistEntry w where w.userId in (:userIds)")
+    int deleteByUsers(@Param("userIds") Collection<Long> userIds);
+}
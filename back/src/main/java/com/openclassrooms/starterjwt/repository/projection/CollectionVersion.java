@@ -0,0 +1,15 @@
+package com.openclassrooms.starterjwt.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cheap fingerprint of a whole table. Ids are never reused, so any insert or delete changes the
+ * count or the id sum even when the other stays the same.
+ */
+public interface CollectionVersion {
+    Long getCount();
+
+    Long getIdSum();
+
+    LocalDateTime getLastUpdated();
+}
@@ -0,0 +1,9 @@
+package com.openclassrooms.starterjwt.repository.projection;
+
+/**
+ * Every write to a session, including joins and cancellations, bumps its version, so the sum only
+ * grows while the set of sessions stays the same.
+ */
+public interface SessionCollectionVersion extends CollectionVersion {
+    Long getVersionSum();
+}
@@ -0,0 +1,10 @@
+package com.openclassrooms.starterjwt.repository.projection;
+
+/**
+ * One row of the {@code PARTICIPATE} join table.
+ */
+public interface SessionParticipant {
+    Long getSessionId();
+
+    Long getUserId();
+}
@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.repository.projection;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * Scalar columns of a session, read without hydrating the entity or its participants.
+ */
+public interface SessionSummary {
+    Long getId();
+
+    String getName();
+
+    Date getDate();
+
+    String getDescription();
+
+    Long getTeacherId();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Integer getCapacity();
+
+    int getParticipantCount();
+}
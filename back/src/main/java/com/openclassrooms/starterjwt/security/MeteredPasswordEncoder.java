@@ -0,0 +1,69 @@
+package com.openclassrooms.starterjwt.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Times hashing ({@code encode}) and verification ({@code matches}) of the wrapped encoder as
+ * {@code security.password}, the dominant cost of registration and login.
+ */
+public class MeteredPasswordEncoder implements PasswordEncoder, MeterBinder {
+  private final PasswordEncoder delegate;
+
+  private volatile Timer encodeTimer;
+
+  private volatile Timer matchesTimer;
+
+  public MeteredPasswordEncoder(PasswordEncoder delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    encodeTimer = timer(registry, "encode");
+    matchesTimer = timer(registry, "matches");
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    long start = System.nanoTime();
+    try {
+      return delegate.encode(rawPassword);
+    } finally {
+      record(encodeTimer, start);
+    }
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    long start = System.nanoTime();
+    try {
+      return delegate.matches(rawPassword, encodedPassword);
+    } finally {
+      record(matchesTimer, start);
+    }
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  private static Timer timer(MeterRegistry registry, String operation) {
+    return Timer.builder("security.password")
+        .description("Password hashing time")
+        .tag("operation", operation)
+        .register(registry);
+  }
+
+  private static void record(Timer timer, long start) {
+    if (timer != null) {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.security;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+/**
+ * New hashes are written with the configured algorithm behind an {@code {id}} prefix. Hashes of any supported
+ * algorithm still verify, as do the unprefixed BCrypt hashes stored before prefixes were introduced, and those of
+ * another algorithm or a lower BCrypt cost report that they need an upgrade.
+ */
+public final class PasswordEncoders {
+  public static final String BCRYPT = "bcrypt";
+
+  public static final String PBKDF2 = "pbkdf2";
+
+  private PasswordEncoders() {
+  }
+
+  /**
+   * @throws IllegalArgumentException if the algorithm is neither {@value #BCRYPT} nor {@value #PBKDF2}
+   */
+  public static DelegatingPasswordEncoder create(String algorithm, int bcryptStrength) {
+    BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+    Map<String, PasswordEncoder> encoders = new HashMap<>();
+    encoders.put(BCRYPT, bcrypt);
+    encoders.put(PBKDF2, new Pbkdf2PasswordEncoder());
+
+    String id = algorithm.trim().toLowerCase(Locale.ROOT);
+    if (!encoders.containsKey(id)) {
+      throw new IllegalArgumentException("Unsupported password encoder: " + algorithm);
+    }
+
+    DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(id, encoders);
+    encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+    return encoder;
+  }
+}
@@ -1,8 +1,12 @@
 package com.openclassrooms.starterjwt.security;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -10,7 +14,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -31,6 +34,12 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
   @Autowired
   private AuthEntryPointJwt unauthorizedHandler;
 
+  @Autowired
+  private PasswordEncoder passwordEncoder;
+
+  @Autowired
+  private Environment environment;
+
   @Bean
   public AuthTokenFilter authenticationJwtTokenFilter() {
     return new AuthTokenFilter();
@@ -38,7 +47,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
   @Override
   public void configure(AuthenticationManagerBuilder authenticationManagerBuilder) throws Exception {
-    authenticationManagerBuilder.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder());
+    authenticationManagerBuilder.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
   }
 
   @Bean
@@ -47,9 +56,18 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     return super.authenticationManagerBean();
   }
 
+  /**
+   * Static so the encoder can be created, and its timers bound, before this configuration is. The timings include
+   * the wait for a hashing thread.
+   */
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public static MeteredPasswordEncoder passwordEncoder(
+      @Value("${oc.app.password.encoder:bcrypt}") String algorithm,
+      @Value("${oc.app.password.bcryptStrength:10}") int bcryptStrength,
+      @Value("${oc.app.password.hashingThreads:0}") int hashingThreads,
+      @Value("${oc.app.password.hashingQueueCapacity:100}") int hashingQueueCapacity) {
+    return new MeteredPasswordEncoder(new BoundedPasswordEncoder(
+        PasswordEncoders.create(algorithm, bcryptStrength), hashingThreads, hashingQueueCapacity));
   }
 
   @Override
@@ -58,9 +76,20 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
       .exceptionHandling().authenticationEntryPoint(unauthorizedHandler).and()
       .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
       .authorizeRequests().antMatchers("/api/auth/**").permitAll()
+      .antMatchers("/actuator/health").permitAll()
+      // Scraped by Prometheus without a token only on management.server.port, to keep off the public network
+      .requestMatchers(this::onManagementPort).permitAll()
       .antMatchers("/api/**").authenticated()
       .anyRequest().authenticated();
 
     http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
   }
+
+  /**
+   * Spring Boot only sets {@code local.management.port} when the actuator runs its own server.
+   */
+  private boolean onManagementPort(HttpServletRequest request) {
+    Integer managementPort = environment.getProperty("local.management.port", Integer.class);
+    return managementPort != null && request.getLocalPort() == managementPort;
+  }
 }
@@ -12,13 +12,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
+import io.jsonwebtoken.Claims;
+
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private JwtUtils jwtUtils;
@@ -26,6 +28,12 @@ public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
+  @Autowired
+  private TokenAuthenticationCache authenticationCache;
+
+  @Autowired
+  private TokenRevocationList revocationList;
+
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
   @Override
@@ -33,10 +41,8 @@ public class AuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      UserDetailsImpl userDetails = jwt == null ? null : resolveUser(jwt);
+      if (userDetails != null) {
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
@@ -53,6 +59,28 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private UserDetailsImpl resolveUser(String jwt) {
+    UserDetailsImpl userDetails = authenticationCache.get(jwt);
+    if (userDetails != null) {
+      return userDetails;
+    }
+
+    Claims claims = jwtUtils.getValidatedClaims(jwt);
+    if (claims == null) {
+      return null;
+    }
+
+    userDetails = jwtUtils.isStateless() ? jwtUtils.getUserDetailsFromClaims(claims) : null;
+    if (userDetails == null) {
+      userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+    } else if (revocationList.isRevoked(userDetails.getId(), claims)) {
+      return null;
+    }
+
+    authenticationCache.put(jwt, userDetails, claims.getExpiration());
+    return userDetails;
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
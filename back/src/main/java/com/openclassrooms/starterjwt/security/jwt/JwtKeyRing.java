@@ -0,0 +1,102 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.security.Key;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.impl.TextCodec;
+
+/**
+ * HMAC keys used to sign and verify tokens. New tokens are signed with the active key and name it in
+ * their {@code kid} header; any key still in the ring verifies the tokens it signed, so keys can be
+ * rotated at runtime without invalidating tokens in flight.
+ */
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+  static final SignatureAlgorithm ALGORITHM = SignatureAlgorithm.HS512;
+
+  private final Map<String, Key> verificationKeys = new ConcurrentHashMap<>();
+
+  private final String legacyKeyId;
+
+  private volatile String activeKeyId;
+
+  private volatile Key activeKey;
+
+  /**
+   * @param keyId id of the initial key, also used to verify tokens issued without a {@code kid} header
+   * @param secret base64 encoded secret, as accepted by {@code oc.app.jwtSecret}
+   */
+  public JwtKeyRing(String keyId, String secret) {
+    this.legacyKeyId = keyId;
+    rotate(keyId, secret);
+  }
+
+  public static Key toKey(String secret) {
+    return new SecretKeySpec(TextCodec.BASE64.decode(secret), ALGORITHM.getJcaName());
+  }
+
+  /**
+   * Makes the given key the signing key. The previous one keeps verifying until {@link #retire(String)}.
+   *
+   * @throws IllegalStateException if the ring already holds a key with this id: tokens signed with the key it
+   * holds would change meaning, so it must be retired first
+   */
+  public synchronized void rotate(String keyId, String secret) {
+    if (verificationKeys.containsKey(keyId)) {
+      throw new IllegalStateException("Key " + keyId + " is already in the ring");
+    }
+    Key key = toKey(secret);
+    verificationKeys.put(keyId, key);
+    activeKey = key;
+    activeKeyId = keyId;
+  }
+
+  /**
+   * Accepts tokens signed with the given key without signing new ones with it.
+   */
+  public void addVerificationKey(String keyId, String secret) {
+    verificationKeys.put(keyId, toKey(secret));
+  }
+
+  /**
+   * @return whether the key was in the ring
+   */
+  public synchronized boolean retire(String keyId) {
+    if (keyId.equals(activeKeyId)) {
+      throw new IllegalArgumentException("Cannot retire the active signing key " + keyId);
+    }
+    return verificationKeys.remove(keyId) != null;
+  }
+
+  public SortedSet<String> getKeyIds() {
+    return Collections.unmodifiableSortedSet(new TreeSet<>(verificationKeys.keySet()));
+  }
+
+  public String getActiveKeyId() {
+    return activeKeyId;
+  }
+
+  public Key getActiveKey() {
+    return activeKey;
+  }
+
+  @Override
+  public Key resolveSigningKey(JwsHeader header, Claims claims) {
+    String keyId = header.getKeyId() == null ? legacyKeyId : header.getKeyId();
+    Key key = verificationKeys.get(keyId);
+    if (key == null) {
+      throw new SignatureException("Unknown signing key id: " + keyId);
+    }
+    return key;
+  }
+}
@@ -1,6 +1,12 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,49 +17,178 @@ import org.springframework.stereotype.Component;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import io.jsonwebtoken.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 @Component
-public class JwtUtils {
+public class JwtUtils implements MeterBinder {
   private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+  static final String CLAIM_ID = "id";
+  static final String CLAIM_FIRST_NAME = "firstName";
+  static final String CLAIM_LAST_NAME = "lastName";
+  static final String CLAIM_ADMIN = "admin";
+
   @Value("${oc.app.jwtSecret}")
   private String jwtSecret;
 
+  @Value("${oc.app.jwtKeyId:default}")
+  private String jwtKeyId;
+
+  @Value("${oc.app.jwtVerificationKeys:}")
+  private String jwtVerificationKeys;
+
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
+  @Value("${oc.app.jwtStateless:false}")
+  private boolean stateless;
+
+  @Value("${oc.app.jwtStatelessExpirationMs:900000}")
+  private int statelessExpirationMs;
+
+  private JwtKeyRing keyRing;
+
+  private JwtParser parser;
+
+  private volatile Map<JwtValidationResult.Failure, Counter> failureCounters = Collections.emptyMap();
+
+  /**
+   * Decodes the keys and builds the parser once; both are thread-safe and shared by every request.
+   * {@code oc.app.jwtVerificationKeys} lists retired keys as {@code kid:secret} pairs, comma separated.
+   */
+  @PostConstruct
+  public void init() {
+    keyRing = new JwtKeyRing(jwtKeyId, jwtSecret);
+    if (jwtVerificationKeys != null) {
+      for (String entry : jwtVerificationKeys.split(",")) {
+        int separator = entry.indexOf(':');
+        if (separator > 0) {
+          keyRing.addVerificationKey(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+      }
+    }
+    parser = Jwts.parser().setSigningKeyResolver(keyRing);
+  }
+
+  /**
+   * Registers one {@code jwt.validation.failures} counter per reason up front, so rejecting a token
+   * only increments an existing counter.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Map<JwtValidationResult.Failure, Counter> counters = new EnumMap<>(JwtValidationResult.Failure.class);
+    for (JwtValidationResult.Failure failure : JwtValidationResult.Failure.values()) {
+      counters.put(failure, Counter.builder("jwt.validation.failures")
+          .description("Rejected JWT tokens")
+          .tag("reason", failure.name().toLowerCase(Locale.ROOT))
+          .register(registry));
+    }
+    failureCounters = counters;
+  }
+
+  public JwtKeyRing getKeyRing() {
+    return keyRing;
+  }
+
   public String generateJwtToken(Authentication authentication) {
 
     UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
+    Date now = new Date();
     return Jwts.builder()
         .setSubject((userPrincipal.getUsername()))
-        .setIssuedAt(new Date())
-        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
+        .claim(CLAIM_ID, userPrincipal.getId())
+        .claim(CLAIM_FIRST_NAME, userPrincipal.getFirstName())
+        .claim(CLAIM_LAST_NAME, userPrincipal.getLastName())
+        .claim(CLAIM_ADMIN, userPrincipal.getAdmin())
+        .setIssuedAt(now)
+        .setExpiration(new Date(now.getTime() + getExpirationMs()))
+        .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKeyId())
+        .signWith(JwtKeyRing.ALGORITHM, keyRing.getActiveKey())
         .compact();
   }
 
+  /**
+   * In stateless mode the principal is rebuilt from the token claims alone, so tokens are kept
+   * short-lived to bound how long a revoked account can go unnoticed on another node.
+   */
+  public boolean isStateless() {
+    return stateless;
+  }
+
+  public int getExpirationMs() {
+    return stateless ? statelessExpirationMs : jwtExpirationMs;
+  }
+
+  /**
+   * Rebuilds the principal embedded by {@link #generateJwtToken(Authentication)}.
+   *
+   * @return the principal, or {@code null} for tokens issued without the identity claims
+   */
+  public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+    Number id = claims.get(CLAIM_ID, Number.class);
+    if (id == null) {
+      return null;
+    }
+
+    return UserDetailsImpl
+        .builder()
+        .id(id.longValue())
+        .username(claims.getSubject())
+        .firstName(claims.get(CLAIM_FIRST_NAME, String.class))
+        .lastName(claims.get(CLAIM_LAST_NAME, String.class))
+        .admin(Boolean.TRUE.equals(claims.get(CLAIM_ADMIN, Boolean.class)))
+        .build();
+  }
+
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    return parser.parseClaimsJws(token).getBody().getSubject();
   }
 
   public boolean validateJwtToken(String authToken) {
+    return getValidatedClaims(authToken) != null;
+  }
+
+  /**
+   * Verifies the token and returns its claims in a single parse.
+   *
+   * @return the claims, or {@code null} if the token is invalid or expired
+   */
+  public Claims getValidatedClaims(String authToken) {
+    return validate(authToken).getClaims();
+  }
+
+  public JwtValidationResult validate(String authToken) {
+    JwtValidationResult result = parse(authToken);
+    if (!result.isValid()) {
+      Counter counter = failureCounters.get(result.getFailure());
+      if (counter != null) {
+        counter.increment();
+      }
+    }
+    return result;
+  }
+
+  private JwtValidationResult parse(String authToken) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      return JwtValidationResult.valid(parser.parseClaimsJws(authToken).getBody());
     } catch (SignatureException e) {
       logger.error("Invalid JWT signature: {}", e.getMessage());
+      return JwtValidationResult.INVALID_SIGNATURE;
     } catch (MalformedJwtException e) {
       logger.error("Invalid JWT token: {}", e.getMessage());
+      return JwtValidationResult.MALFORMED;
     } catch (ExpiredJwtException e) {
       logger.error("JWT token is expired: {}", e.getMessage());
+      return JwtValidationResult.EXPIRED;
     } catch (UnsupportedJwtException e) {
       logger.error("JWT token is unsupported: {}", e.getMessage());
+      return JwtValidationResult.UNSUPPORTED;
     } catch (IllegalArgumentException e) {
       logger.error("JWT claims string is empty: {}", e.getMessage());
+      return JwtValidationResult.EMPTY;
     }
-
-    return false;
   }
 }
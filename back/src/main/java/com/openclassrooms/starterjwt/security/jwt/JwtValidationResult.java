@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Outcome of {@link JwtUtils#validate(String)}: the claims of a valid token, or why it was rejected.
+ * Failures are shared constants so rejecting a token allocates nothing beyond the parser's exception.
+ */
+public final class JwtValidationResult {
+  public enum Failure {
+    INVALID_SIGNATURE,
+    MALFORMED,
+    EXPIRED,
+    UNSUPPORTED,
+    EMPTY
+  }
+
+  static final JwtValidationResult INVALID_SIGNATURE = new JwtValidationResult(null, Failure.INVALID_SIGNATURE);
+  static final JwtValidationResult MALFORMED = new JwtValidationResult(null, Failure.MALFORMED);
+  static final JwtValidationResult EXPIRED = new JwtValidationResult(null, Failure.EXPIRED);
+  static final JwtValidationResult UNSUPPORTED = new JwtValidationResult(null, Failure.UNSUPPORTED);
+  static final JwtValidationResult EMPTY = new JwtValidationResult(null, Failure.EMPTY);
+
+  private final Claims claims;
+
+  private final Failure failure;
+
+  private JwtValidationResult(Claims claims, Failure failure) {
+    this.claims = claims;
+    this.failure = failure;
+  }
+
+  static JwtValidationResult valid(Claims claims) {
+    return new JwtValidationResult(claims, null);
+  }
+
+  public boolean isValid() {
+    return failure == null;
+  }
+
+  public Claims getClaims() {
+    return claims;
+  }
+
+  public Failure getFailure() {
+    return failure;
+  }
+}
@@ -0,0 +1,128 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded cache of already validated tokens and the principal they resolved to, so a warm token
+ * is authenticated without parsing it again or querying the database.
+ * An entry never outlives the token it was built from.
+ */
+@Component
+public class TokenAuthenticationCache implements MeterBinder {
+  private final Cache<String, CachedAuthentication> cache;
+
+  @Autowired
+  public TokenAuthenticationCache(@Value("${oc.app.authCache.maxSize:10000}") long maxSize,
+      @Value("${oc.app.authCache.ttlMs:300000}") long ttlMs) {
+    this(maxSize, ttlMs, Ticker.systemTicker(), Clock.systemUTC(), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param ticker measures how long entries have been cached
+   * @param clock tells how long tokens have left; token expirations are wall-clock times, which the ticker is not
+   */
+  TokenAuthenticationCache(long maxSize, long ttlMs, Ticker ticker, Clock clock, Executor executor) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .executor(executor)
+        .expireAfter(new TokenExpiry(TimeUnit.MILLISECONDS.toNanos(ttlMs), clock))
+        .ticker(ticker)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Publishes hit, miss and eviction counts as the {@code authTokens} cache. The tags mirror the ones
+   * Spring Boot puts on managed caches: Prometheus drops series sharing a name but not a tag set.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "authTokens",
+        Tags.of("cacheManager", "tokenAuthenticationCache", "name", "authTokens"));
+  }
+
+  public UserDetailsImpl get(String token) {
+    CachedAuthentication cached = cache.getIfPresent(token);
+    return cached == null ? null : cached.userDetails;
+  }
+
+  public void put(String token, UserDetailsImpl userDetails, Date tokenExpiration) {
+    cache.put(token, new CachedAuthentication(userDetails, tokenExpiration));
+  }
+
+  /**
+   * Drops every cached token of the given user, e.g. once the account is deleted.
+   */
+  public void evictUser(Long userId) {
+    cache.asMap().values().removeIf(cached -> cached.userDetails.getId().equals(userId));
+  }
+
+  public void evictAll() {
+    cache.invalidateAll();
+  }
+
+  long size() {
+    cache.cleanUp();
+    return cache.estimatedSize();
+  }
+
+  private static final class CachedAuthentication {
+    private final UserDetailsImpl userDetails;
+
+    private final Date tokenExpiration;
+
+    private CachedAuthentication(UserDetailsImpl userDetails, Date tokenExpiration) {
+      this.userDetails = userDetails;
+      this.tokenExpiration = tokenExpiration;
+    }
+  }
+
+  private static final class TokenExpiry implements Expiry<String, CachedAuthentication> {
+    private final long ttlNanos;
+
+    private final Clock clock;
+
+    private TokenExpiry(long ttlNanos, Clock clock) {
+      this.ttlNanos = ttlNanos;
+      this.clock = clock;
+    }
+
+    @Override
+    public long expireAfterCreate(String token, CachedAuthentication cached, long currentTime) {
+      if (cached.tokenExpiration == null) {
+        return ttlNanos;
+      }
+      long untilTokenExpires = TimeUnit.MILLISECONDS.toNanos(cached.tokenExpiration.getTime() - clock.millis());
+      return Math.max(0, Math.min(ttlNanos, untilTokenExpires));
+    }
+
+    @Override
+    public long expireAfterUpdate(String token, CachedAuthentication cached, long currentTime, long currentDuration) {
+      return expireAfterCreate(token, cached, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String token, CachedAuthentication cached, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Users whose already issued tokens must stop working, e.g. deleted accounts.
+ * A revocation only needs to be remembered for the lifetime of a token, after which every token
+ * issued before it has expired on its own.
+ */
+@Component
+public class TokenRevocationList {
+  private final Cache<Long, Date> revokedAt;
+
+  private final TokenAuthenticationCache authenticationCache;
+
+  public TokenRevocationList(JwtUtils jwtUtils, TokenAuthenticationCache authenticationCache) {
+    this.revokedAt = Caffeine.newBuilder()
+        .expireAfterWrite(jwtUtils.getExpirationMs(), TimeUnit.MILLISECONDS)
+        .build();
+    this.authenticationCache = authenticationCache;
+  }
+
+  public void revokeUser(Long userId) {
+    revokedAt.put(userId, new Date());
+    authenticationCache.evictUser(userId);
+  }
+
+  public boolean isRevoked(Long userId, Claims claims) {
+    Date revoked = revokedAt.getIfPresent(userId);
+    if (revoked == null) {
+      return false;
+    }
+
+    Date issuedAt = claims.getIssuedAt();
+    return issuedAt == null || !issuedAt.after(revoked);
+  }
+}
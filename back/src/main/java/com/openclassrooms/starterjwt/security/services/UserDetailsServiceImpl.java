@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.security.services;
 
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -9,8 +10,12 @@ import org.springframework.transaction.annotation.Transactional;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
+/**
+ * Loads users for authentication and, as a {@link UserDetailsPasswordService}, stores the new hash when a login
+ * finds the stored one outdated.
+ */
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
   UserRepository userRepository;
 
   UserDetailsServiceImpl(UserRepository userRepository) {
@@ -18,8 +23,8 @@ public class UserDetailsServiceImpl implements UserDetailsService {
   }
 
   @Override
-  @Transactional
-  public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+  @Transactional(readOnly = true)
+  public UserDetailsImpl loadUserByUsername(String username) throws UsernameNotFoundException {
     User user = userRepository.findByEmail(username)
         .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
 
@@ -29,8 +34,25 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             .username(user.getEmail())
             .lastName(user.getLastName())
             .firstName(user.getFirstName())
+            .admin(user.isAdmin())
             .password(user.getPassword())
             .build();
   }
 
+  @Override
+  @Transactional
+  public UserDetailsImpl updatePassword(UserDetails user, String newPassword) {
+    userRepository.updatePassword(user.getUsername(), newPassword);
+
+    UserDetailsImpl details = (UserDetailsImpl) user;
+    return UserDetailsImpl
+            .builder()
+            .id(details.getId())
+            .username(details.getUsername())
+            .lastName(details.getLastName())
+            .firstName(details.getFirstName())
+            .admin(details.getAdmin())
+            .password(newPassword)
+            .build();
+  }
 }
@@ -0,0 +1,470 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.ImportException;
+import com.openclassrooms.starterjwt.models.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports and exports whole schedules as NDJSON or CSV, one session per line, without going through the entity.
+ * <p>
+ * Sessions keep their {@code IDENTITY} ids, which stop Hibernate from batching inserts; imports use plain JDBC
+ * batches instead, and exports read from a forward-only cursor, writing each row as it arrives. Hibernate does not
+ * see those inserts, so an import evicts the cached sessions and query results itself.
+ */
+@Service
+public class SessionBulkService {
+    public enum Format { NDJSON, CSV }
+
+    static final int BATCH_SIZE = 500;
+
+    static final List<String> CSV_COLUMNS = Arrays.asList(
+            "id", "name", "date", "teacher_id", "description", "capacity", "participant_count");
+
+    private static final String INSERT = "insert into SESSIONS"
+            + " (name, date, description, teacher_id, capacity, participant_count, version, created_at, updated_at)"
+            + " values (?, ?, ?, ?, ?, 0, 0, ?, ?)";
+
+    private static final String EXPORT = "select id, name, date, description, teacher_id, capacity, participant_count"
+            + " from SESSIONS order by id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final int fetchSize;
+
+    public SessionBulkService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              EntityManagerFactory entityManagerFactory,
+                              ObjectMapper objectMapper,
+                              Validator validator,
+                              @Value("${oc.app.export.fetchSize:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Validates and inserts the sessions read from {@code reader}, all of them or none. Ids, participants and
+     * participant counts in the input are ignored.
+     *
+     * @return the number of sessions imported
+     * @throws ImportException naming the offending line if a session is invalid or its teacher does not exist
+     */
+    public int importSessions(BufferedReader reader, Format format) {
+        Integer imported = this.transactionTemplate.execute(status -> {
+            SessionReader sessions = format == Format.CSV ? new CsvSessionReader(reader) : new NdjsonSessionReader(reader);
+            List<SessionDto> batch = new ArrayList<>(BATCH_SIZE);
+            List<Integer> lines = new ArrayList<>(BATCH_SIZE);
+            Set<Long> teacherIds = new HashSet<>();
+            int count = 0;
+            SessionDto session;
+            while ((session = sessions.next()) != null) {
+                validate(session, sessions.line());
+                batch.add(session);
+                lines.add(sessions.line());
+                if (batch.size() == BATCH_SIZE) {
+                    checkTeachers(batch, lines, teacherIds);
+                    insert(batch, lines);
+                    count += batch.size();
+                    batch.clear();
+                    lines.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                checkTeachers(batch, lines, teacherIds);
+                insert(batch, lines);
+                count += batch.size();
+            }
+            return count;
+        });
+        evictCachedSessions();
+        return imported == null ? 0 : imported;
+    }
+
+    /**
+     * Writes every session to {@code out}, flushing as rows are read rather than collecting them first.
+     */
+    public void exportSessions(OutputStream out, Format format) throws IOException {
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        try {
+            this.jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        EXPORT, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(this.fetchSize);
+                return statement;
+            }, (ResultSet row) -> {
+                try {
+                    writer.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void validate(SessionDto session, int line) {
+        Set<ConstraintViolation<SessionDto>> violations = this.validator.validate(session);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<SessionDto> violation = violations.iterator().next();
+            throw new ImportException(line, violation.getPropertyPath() + " " + violation.getMessage());
+        }
+    }
+
+    /**
+     * Looks up the teachers of the batch not seen yet, so that a missing one is reported on the line that names it
+     * rather than failing the whole batch.
+     *
+     * @param teacherIds the teachers known to exist, completed with those of the batch
+     */
+    /**
+     * Drops the sessions and query results cached before the import: the JDBC batches bypass the invalidation
+     * Hibernate does for its own writes, so cached queries over sessions would otherwise miss the new rows.
+     */
+    private void evictCachedSessions() {
+        this.entityManagerFactory.getCache().evict(Session.class);
+        this.entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+
+    private void checkTeachers(List<SessionDto> batch, List<Integer> lines, Set<Long> teacherIds) {
+        Set<Long> unchecked = new LinkedHashSet<>();
+        for (SessionDto session : batch) {
+            if (!teacherIds.contains(session.getTeacher_id())) {
+                unchecked.add(session.getTeacher_id());
+            }
+        }
+        if (unchecked.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(",", Collections.nCopies(unchecked.size(), "?"));
+        teacherIds.addAll(this.jdbcTemplate.queryForList(
+                "select id from TEACHERS where id in (" + placeholders + ")", Long.class, unchecked.toArray()));
+        for (int i = 0; i < batch.size(); i++) {
+            if (!teacherIds.contains(batch.get(i).getTeacher_id())) {
+                throw new ImportException(lines.get(i), "unknown teacher " + batch.get(i).getTeacher_id());
+            }
+        }
+    }
+
+    private void insert(List<SessionDto> batch, List<Integer> lines) {
+        Timestamp now = Timestamp.from(Instant.now());
+        try {
+            this.jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), (statement, session) -> {
+                statement.setString(1, session.getName());
+                statement.setTimestamp(2, new Timestamp(session.getDate().getTime()));
+                statement.setString(3, session.getDescription());
+                statement.setLong(4, session.getTeacher_id());
+                if (session.getCapacity() == null) {
+                    statement.setNull(5, Types.INTEGER);
+                } else {
+                    statement.setInt(5, session.getCapacity());
+                }
+                statement.setTimestamp(6, now);
+                statement.setTimestamp(7, now);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Teachers are checked beforehand, so only one deleted meanwhile gets here
+            throw new ImportException(lines.get(0), "constraint violated by a session of lines "
+                    + lines.get(0) + " to " + lines.get(lines.size() - 1) + ": " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private interface SessionReader {
+        /**
+         * @return the next session, or {@code null} at the end of the input
+         */
+        SessionDto next();
+
+        /**
+         * @return the line the last session ended on
+         */
+        int line();
+    }
+
+    private class NdjsonSessionReader implements SessionReader {
+        private final BufferedReader reader;
+
+        private int line;
+
+        NdjsonSessionReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public SessionDto next() {
+            String text;
+            while ((text = readLine(this.reader)) != null) {
+                this.line++;
+                if (!text.trim().isEmpty()) {
+                    try {
+                        return objectMapper.readValue(text, SessionDto.class);
+                    } catch (JsonProcessingException e) {
+                        throw new ImportException(this.line, e.getOriginalMessage());
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public int line() {
+            return this.line;
+        }
+    }
+
+    /**
+     * RFC 4180 records: the header names the columns, in any order, and quoted fields may span lines.
+     */
+    private static class CsvSessionReader implements SessionReader {
+        private final BufferedReader reader;
+
+        private Map<String, Integer> columns;
+
+        private int line;
+
+        CsvSessionReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public SessionDto next() {
+            if (this.columns == null) {
+                List<String> header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                this.columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    this.columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+                }
+            }
+
+            List<String> record;
+            do {
+                record = readRecord();
+            } while (record != null && record.size() == 1 && record.get(0).trim().isEmpty());
+            if (record == null) {
+                return null;
+            }
+
+            try {
+                SessionDto session = new SessionDto();
+                session.setName(field(record, "name"));
+                String date = field(record, "date");
+                session.setDate(date == null ? null : Date.from(Instant.parse(date)));
+                String teacherId = field(record, "teacher_id");
+                session.setTeacher_id(teacherId == null ? null : Long.valueOf(teacherId));
+                session.setDescription(field(record, "description"));
+                String capacity = field(record, "capacity");
+                session.setCapacity(capacity == null ? null : Integer.valueOf(capacity));
+                return session;
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new ImportException(this.line, e.getMessage());
+            }
+        }
+
+        @Override
+        public int line() {
+            return this.line;
+        }
+
+        private String field(List<String> record, String column) {
+            Integer index = this.columns.get(column);
+            if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+                return null;
+            }
+            return record.get(index);
+        }
+
+        private List<String> readRecord() {
+            String text = readLine(this.reader);
+            if (text == null) {
+                return null;
+            }
+            this.line++;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; ; i++) {
+                if (i == text.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    text = readLine(this.reader);
+                    if (text == null) {
+                        throw new ImportException(this.line, "unterminated quoted field");
+                    }
+                    this.line++;
+                    field.append('\n');
+                    i = -1;
+                    continue;
+                }
+
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private interface RowWriter {
+        void write(ResultSet row) throws SQLException, IOException;
+
+        void flush() throws IOException;
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet row) throws SQLException, IOException {
+            this.generator.writeStartObject();
+            this.generator.writeNumberField("id", row.getLong("id"));
+            this.generator.writeStringField("name", row.getString("name"));
+            Timestamp date = row.getTimestamp("date");
+            this.generator.writeStringField("date", date == null ? null : date.toInstant().toString());
+            long teacherId = row.getLong("teacher_id");
+            if (row.wasNull()) {
+                this.generator.writeNullField("teacher_id");
+            } else {
+                this.generator.writeNumberField("teacher_id", teacherId);
+            }
+            this.generator.writeStringField("description", row.getString("description"));
+            int capacity = row.getInt("capacity");
+            if (row.wasNull()) {
+                this.generator.writeNullField("capacity");
+            } else {
+                this.generator.writeNumberField("capacity", capacity);
+            }
+            this.generator.writeNumberField("participant_count", row.getInt("participant_count"));
+            this.generator.writeEndObject();
+            this.generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.generator.flush();
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.writer.write(String.join(",", CSV_COLUMNS));
+            this.writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet row) throws SQLException, IOException {
+            Timestamp date = row.getTimestamp("date");
+            String teacherId = row.getString("teacher_id");
+            String capacity = row.getString("capacity");
+            this.writer.write(row.getLong("id") + ","
+                    + escape(row.getString("name")) + ","
+                    + (date == null ? "" : date.toInstant().toString()) + ","
+                    + (teacherId == null ? "" : teacherId) + ","
+                    + escape(row.getString("description")) + ","
+                    + (capacity == null ? "" : capacity) + ","
+                    + row.getInt("participant_count") + "\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
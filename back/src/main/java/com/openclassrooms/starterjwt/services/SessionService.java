@@ -1,15 +1,40 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.SessionCursor;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.repository.projection.SessionCollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.SessionParticipant;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class SessionService {
@@ -17,62 +42,368 @@ public class SessionService {
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    public SessionService(SessionRepository sessionRepository,
+                          UserRepository userRepository,
+                          WaitlistRepository waitlistRepository) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
     }
 
+    @Transactional
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        checkCapacity(session);
+        try {
+            Session created = this.sessionRepository.save(session);
+            if (created.getUsers() != null && !created.getUsers().isEmpty()) {
+                this.sessionRepository.syncParticipantCount(created.getId());
+            }
+            return created;
+        } catch (DataIntegrityViolationException e) {
+            // The teacher is only referenced, so an unknown id surfaces as a foreign key violation
+            throw new BadRequestException();
+        }
     }
 
+    /**
+     * Deletes the session, its participations and its waiting list without loading any of them.
+     *
+     * @throws NotFoundException if the session does not exist
+     */
+    @Transactional
     public void delete(Long id) {
-        this.sessionRepository.deleteById(id);
+        this.waitlistRepository.deleteBySession(id);
+        if (this.sessionRepository.removeById(id) == 0) {
+            throw new NotFoundException();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<SessionSummary> findAllSummaries() {
+        return this.sessionRepository.findAllSummaries();
+    }
+
+    @Transactional(readOnly = true)
+    public List<SessionSummary> findPage(SessionCursor after, Date from, Date to, Long teacherId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (after == null) {
+            return this.sessionRepository.findFirstPage(from, to, teacherId, page);
+        }
+
+        return this.sessionRepository.findPageAfter(after.getDate(), after.getId(), from, to, teacherId, page);
+    }
+
+    /**
+     * A page of the sessions the user participates in, in the same order as {@link #findPage}.
+     *
+     * @throws NotFoundException if the user does not exist
+     */
+    @Transactional(readOnly = true)
+    public List<SessionSummary> findUserPage(Long userId, SessionCursor after, Date from, Date to, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<SessionSummary> sessions = after == null
+                ? this.sessionRepository.findUserFirstPage(userId, from, to, page)
+                : this.sessionRepository.findUserPageAfter(userId, after.getDate(), after.getId(), from, to, page);
+
+        if (sessions.isEmpty() && !this.userRepository.existsById(userId)) {
+            throw new NotFoundException();
+        }
+        return sessions;
+    }
+
+    @Transactional(readOnly = true)
+    public SessionSummary findSummaryById(Long id) {
+        return this.sessionRepository.findSummaryById(id).orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findAllParticipantIds() {
+        return groupBySession(this.sessionRepository.findAllParticipants());
+    }
+
+    /**
+     * Hands every session to {@code consumer}, in id order and in chunks of at most {@code chunkSize}, along with
+     * the participant ids of the chunk. Sessions are read from a cursor, so only one chunk is held at a time.
+     */
+    @Transactional(readOnly = true)
+    public void forEachChunk(int chunkSize, BiConsumer<List<SessionSummary>, Map<Long, List<Long>>> consumer) {
+        try (Stream<SessionSummary> sessions = this.sessionRepository.streamAllSummaries()) {
+            List<SessionSummary> chunk = new ArrayList<>(chunkSize);
+            Iterator<SessionSummary> iterator = sessions.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    consumer.accept(chunk, findParticipantIds(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Participant ids of the given sessions, fetched in a single query. Sessions without participants are absent.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findParticipantIds(List<SessionSummary> sessions) {
+        if (sessions.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Long> sessionIds = sessions.stream().map(SessionSummary::getId).collect(Collectors.toList());
+        return groupBySession(this.sessionRepository.findParticipants(sessionIds));
     }
 
-    public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+    /**
+     * Ids of the given sessions the user with this email participates in, checked in a single query.
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findParticipatedSessionIds(String email, List<SessionSummary> sessions) {
+        if (email == null || sessions.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        List<Long> sessionIds = sessions.stream().map(SessionSummary::getId).collect(Collectors.toList());
+        return new HashSet<>(this.sessionRepository.findParticipatedSessionIds(email, sessionIds));
     }
 
+    @Transactional(readOnly = true)
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
-    public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+    /**
+     * Replaces the fields of the session, and its participants only when {@code session} lists them: an edit that
+     * leaves them out keeps the bookings taken meanwhile.
+     *
+     * @param expectedVersion the version the edit was made from, {@code null} to apply it to the current one
+     * @throws NotFoundException if the session does not exist
+     * @throws PreconditionFailedException if the session changed since {@code expectedVersion}
+     * @throws ConflictException if the session changed during the edit while no {@code expectedVersion} was given
+     */
+    @Transactional
+    public Session update(Long id, Session session, Long expectedVersion) {
+        checkCapacity(session);
+        return apply(id, expectedVersion, current -> {
+            current.setName(session.getName())
+                    .setDate(session.getDate())
+                    .setDescription(session.getDescription())
+                    .setTeacher(session.getTeacher())
+                    .setCapacity(session.getCapacity());
+            if (session.getUsers() != null) {
+                current.setUsers(session.getUsers());
+            }
+        });
+    }
+
+    /**
+     * Applies a partial update to the session; only the columns it changes are written.
+     *
+     * @see #update(Long, Session, Long)
+     */
+    @Transactional
+    public Session patch(Long id, Consumer<Session> changes, Long expectedVersion) {
+        return apply(id, expectedVersion, changes);
+    }
+
+    /**
+     * Edits the session under the row lock the booking statements take, so no seat can be taken between the
+     * version check and the write.
+     */
+    private Session apply(Long id, Long expectedVersion, Consumer<Session> changes) {
+        this.sessionRepository.lockById(id).orElseThrow(NotFoundException::new);
+        Session session = this.sessionRepository.findById(id).orElseThrow(NotFoundException::new);
+        if (expectedVersion != null && !expectedVersion.equals(session.getVersion())) {
+            throw new PreconditionFailedException();
+        }
+
+        List<User> participants = session.getUsers();
+        changes.accept(session);
+        boolean participantsReplaced = session.getUsers() != participants;
+        if (!participantsReplaced && session.getCapacity() != null
+                && session.getParticipantCount() > session.getCapacity()) {
+            throw new BadRequestException();
+        }
+
+        try {
+            this.sessionRepository.saveAndFlush(session);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException();
+        } catch (OptimisticLockingFailureException e) {
+            // Changed by a writer that does not take the row lock
+            throw expectedVersion != null ? new PreconditionFailedException() : new ConflictException();
+        }
+        if (participantsReplaced) {
+            this.sessionRepository.syncParticipantCount(id);
+        }
+        // The capacity may have grown
+        promoteWaiters(id);
+        return session;
+    }
+
+    @Transactional(readOnly = true)
+    public Long findVersion(Long id) {
+        return this.sessionRepository.findVersionById(id).orElse(null);
     }
 
+    @Transactional(readOnly = true)
+    public SessionCollectionVersion getCollectionVersion() {
+        return this.sessionRepository.findCollectionVersion();
+    }
+
+    /**
+     * Books a seat for the user.
+     *
+     * @throws NotFoundException if the session or the user does not exist
+     * @throws BadRequestException if the user already participates
+     * @throws ConflictException if the session is full
+     */
+    @Transactional
     public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
-            throw new NotFoundException();
+        if (this.sessionRepository.reserveSeat(id) == 0) {
+            if (!this.sessionRepository.existsById(id)) {
+                throw new NotFoundException();
+            }
+            if (this.sessionRepository.countParticipation(id, userId) > 0) {
+                throw new BadRequestException();
+            }
+            throw new ConflictException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
+        // Past this point the seat is ours; any exception rolls it back with the transaction
+        addParticipant(id, userId);
+    }
+
+    /**
+     * Books a seat if one is left, otherwise queues the user behind the current waiters of the session.
+     *
+     * @return {@code true} if a seat was booked, {@code false} if the user was queued
+     * @throws NotFoundException if the session or the user does not exist
+     * @throws BadRequestException if the user already participates or waits
+     */
+    @Transactional
+    public boolean participateOrWait(Long id, Long userId) {
+        // Serializes with cancellations, so a seat cannot be freed between the check and the enqueue
+        this.sessionRepository.lockById(id).orElseThrow(NotFoundException::new);
+
+        if (this.sessionRepository.reserveSeat(id) == 1) {
+            addParticipant(id, userId);
+            return true;
+        }
+
+        if (this.sessionRepository.countParticipation(id, userId) > 0
+                || this.waitlistRepository.existsBySessionIdAndUserId(id, userId)) {
             throw new BadRequestException();
         }
+        if (!this.userRepository.existsById(userId)) {
+            throw new NotFoundException();
+        }
+        this.waitlistRepository.save(new WaitlistEntry().setSessionId(id).setUserId(userId));
+        return false;
+    }
 
-        session.getUsers().add(user);
+    @Transactional
+    public void leaveWaitlist(Long id, Long userId) {
+        if (this.waitlistRepository.deleteEntry(id, userId) == 0) {
+            if (!this.sessionRepository.existsById(id)) {
+                throw new NotFoundException();
+            }
+            throw new BadRequestException();
+        }
+    }
 
-        this.sessionRepository.save(session);
+    /**
+     * @return the ids of the users waiting for the session, first in line first
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findWaitlist(Long id) {
+        if (!this.sessionRepository.existsById(id)) {
+            throw new NotFoundException();
+        }
+        return this.waitlistRepository.findUserIds(id);
     }
 
+    @Transactional
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
-            throw new NotFoundException();
+        if (this.sessionRepository.releaseSeat(id, userId) == 0) {
+            if (!this.sessionRepository.existsById(id)) {
+                throw new NotFoundException();
+            }
+            throw new BadRequestException();
+        }
+        this.sessionRepository.lockCachedParticipants(id);
+        this.sessionRepository.removeParticipant(id, userId);
+        promoteWaiters(id);
+    }
+
+    /**
+     * Gives back every seat the users hold in set-based statements and hands the freed seats to waiters, as
+     * {@link #noLongerParticipate(Long, Long)} does for one booking. Runs before deleting the users, whose
+     * participations reference them.
+     */
+    @Transactional
+    public void releaseSeats(Collection<Long> userIds) {
+        List<Long> sessionIds = this.sessionRepository.findIdsByParticipants(userIds);
+        if (sessionIds.isEmpty()) {
+            return;
         }
+        this.sessionRepository.releaseSeats(sessionIds, userIds);
+        sessionIds.forEach(this.sessionRepository::lockCachedParticipants);
+        this.sessionRepository.removeParticipants(sessionIds, userIds);
+        sessionIds.forEach(this::promoteWaiters);
+    }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+    private void addParticipant(Long id, Long userId) {
+        int inserted;
+        try {
+            this.sessionRepository.lockCachedParticipants(id);
+            inserted = this.sessionRepository.addParticipant(id, userId);
+        } catch (DataIntegrityViolationException e) {
+            // The primary key of PARTICIPATE still backs the NOT EXISTS check
             throw new BadRequestException();
         }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+        if (inserted == 0) {
+            if (!this.userRepository.existsById(userId)) {
+                throw new NotFoundException();
+            }
+            throw new BadRequestException();
+        }
+        this.waitlistRepository.deleteEntry(id, userId);
+    }
 
-        this.sessionRepository.save(session);
+    /**
+     * Hands the free seats of the session to its oldest waiters, in the transaction that freed them. Each promotion
+     * reads the head of the queue from the {@code (session_id, id)} index, so a cancellation costs the same few
+     * statements however long the queue is.
+     */
+    private void promoteWaiters(Long id) {
+        Optional<WaitlistEntry> next;
+        while ((next = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(id)).isPresent()
+                && this.sessionRepository.reserveSeat(id) == 1) {
+            Long userId = next.get().getUserId();
+            this.waitlistRepository.deleteEntry(id, userId);
+            this.sessionRepository.lockCachedParticipants(id);
+            if (this.sessionRepository.addParticipant(id, userId) == 0) {
+                // Booking and deleting a user both clear their entries, so this is not expected; recount rather than leak the seat
+                this.sessionRepository.syncParticipantCount(id);
+            }
+        }
+    }
+
+    private static void checkCapacity(Session session) {
+        if (session.getCapacity() != null && session.getUsers() != null
+                && session.getUsers().size() > session.getCapacity()) {
+            throw new BadRequestException();
+        }
+    }
+
+    private static Map<Long, List<Long>> groupBySession(List<SessionParticipant> participants) {
+        Map<Long, List<Long>> bySession = new HashMap<>();
+        for (SessionParticipant participant : participants) {
+            bySession.computeIfAbsent(participant.getSessionId(), key -> new ArrayList<>()).add(participant.getUserId());
+        }
+        return bySession;
     }
 }
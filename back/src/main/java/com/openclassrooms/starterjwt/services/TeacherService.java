@@ -2,23 +2,78 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Teachers are a small, nearly static set, so reads are served from the {@value #CACHE} and
+ * {@value #LIST_CACHE} caches (bounded by {@code spring.cache.caffeine.spec}). The writes of this service evict
+ * them; writes that bypass it must call {@link #evictAll()}.
+ */
 @Service
 public class TeacherService {
+    public static final String CACHE = "teachers";
+    public static final String LIST_CACHE = "teacherList";
+
     private final TeacherRepository teacherRepository;
 
     public TeacherService(TeacherRepository teacherRepository) {
         this.teacherRepository = teacherRepository;
     }
 
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = LIST_CACHE, key = "'all'")
     public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+        return Collections.unmodifiableList(this.teacherRepository.findAll());
+    }
+
+    @Transactional(readOnly = true)
+    public CollectionVersion getCollectionVersion() {
+        return this.teacherRepository.findCollectionVersion();
     }
 
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CACHE, unless = "#result == null")
     public Teacher findById(Long id) {
         return this.teacherRepository.findById(id).orElse(null);
     }
+
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CACHE, key = "#result.id"),
+            @CacheEvict(cacheNames = LIST_CACHE, allEntries = true)
+    })
+    public Teacher save(Teacher teacher) {
+        return this.teacherRepository.save(teacher);
+    }
+
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CACHE, key = "#id"),
+            @CacheEvict(cacheNames = LIST_CACHE, allEntries = true)
+    })
+    public void delete(Long id) {
+        this.teacherRepository.deleteById(id);
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CACHE, allEntries = true),
+            @CacheEvict(cacheNames = LIST_CACHE, allEntries = true)
+    })
+    public void evictAll() {
+    }
+
+    /**
+     * Returns a lazy reference for associating the teacher without loading it.
+     */
+    public Teacher getReference(Long id) {
+        return this.teacherRepository.getById(id);
+    }
 }
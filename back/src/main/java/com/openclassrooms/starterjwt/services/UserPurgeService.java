@@ -0,0 +1,113 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.starterjwt.dto.UserPurgeDto;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes users in bulk, e.g. for erasure requests, on a background thread. The ids are deleted in chunks of
+ * {@code oc.app.purge.chunkSize}, one transaction each, so no session or user row stays locked for longer than a
+ * chunk takes and a failing chunk does not undo the others.
+ * <p>
+ * Purges run one at a time; beyond {@code oc.app.purge.queueCapacity} waiting purges, new ones are refused with
+ * {@link ServiceUnavailableException}. Their progress is kept for a day.
+ */
+@Service
+@Log4j2
+public class UserPurgeService {
+    private final UserService userService;
+
+    private final int chunkSize;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Cache<String, UserPurgeDto> purges = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(1, TimeUnit.DAYS)
+            .build();
+
+    public UserPurgeService(UserService userService,
+                            @Value("${oc.app.purge.chunkSize:500}") int chunkSize,
+                            @Value("${oc.app.purge.queueCapacity:10}") int queueCapacity) {
+        this.userService = userService;
+        this.chunkSize = chunkSize;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("user-purge-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues the deletion of the users, duplicates and unknown ids being skipped.
+     *
+     * @return the purge, to poll with {@link #find(String)}
+     * @throws ServiceUnavailableException if too many purges are waiting already
+     */
+    public UserPurgeDto purge(List<Long> userIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        UserPurgeDto purge = new UserPurgeDto(UUID.randomUUID().toString(), UserPurgeDto.Status.QUEUED, ids.size(), 0, 0, 0);
+        this.purges.put(purge.getId(), purge);
+        try {
+            this.executor.execute(() -> run(purge, ids));
+        } catch (RejectedExecutionException e) {
+            this.purges.invalidate(purge.getId());
+            throw new ServiceUnavailableException();
+        }
+        return purge;
+    }
+
+    /**
+     * @return the progress of the purge, {@code null} if it is unknown or expired
+     */
+    public UserPurgeDto find(String id) {
+        return this.purges.getIfPresent(id);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void run(UserPurgeDto purge, List<Long> ids) {
+        log.info("Purging {} users in chunks of {}", ids.size(), this.chunkSize);
+        int processed = 0, deleted = 0, failed = 0;
+        publish(purge, UserPurgeDto.Status.RUNNING, processed, deleted, failed);
+        for (int from = 0; from < ids.size() && !Thread.currentThread().isInterrupted(); from += this.chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + this.chunkSize, ids.size()));
+            try {
+                deleted += this.userService.deleteAll(chunk);
+            } catch (RuntimeException e) {
+                log.error("Could not purge users {} to {}", chunk.get(0), chunk.get(chunk.size() - 1), e);
+                failed += chunk.size();
+            }
+            processed += chunk.size();
+            publish(purge, UserPurgeDto.Status.RUNNING, processed, deleted, failed);
+        }
+        publish(purge, UserPurgeDto.Status.DONE, processed, deleted, failed);
+        log.info("Purged {} of {} users, {} failed", deleted, ids.size(), failed);
+    }
+
+    /**
+     * Replaces the progress rather than updating it, so readers always see a consistent copy.
+     */
+    private void publish(UserPurgeDto purge, UserPurgeDto.Status status, int processed, int deleted, int failed) {
+        this.purges.put(purge.getId(),
+                new UserPurgeDto(purge.getId(), status, purge.getRequested(), processed, deleted, failed));
+    }
+}
@@ -1,22 +1,85 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    private final SessionService sessionService;
+
+    private final TokenRevocationList revocationList;
+
+    public UserService(UserRepository userRepository,
+                       WaitlistRepository waitlistRepository,
+                       SessionService sessionService,
+                       TokenRevocationList revocationList) {
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.sessionService = sessionService;
+        this.revocationList = revocationList;
     }
 
-    public void delete(Long id) {
-        this.userRepository.deleteById(id);
+    /**
+     * Deletes the account of {@code email}, its bookings and its waiting list entries without loading them. The
+     * seats it held go to the sessions' waiters.
+     *
+     * @throws NotFoundException if the user does not exist
+     * @throws UnauthorizedException if the account belongs to someone else
+     */
+    @Transactional
+    public void delete(Long id, String email) {
+        // Checked first, so that nobody locks or releases the seats of an account that is not theirs
+        if (!this.userRepository.existsByIdAndEmail(id, email)) {
+            if (this.userRepository.existsById(id)) {
+                throw new UnauthorizedException();
+            }
+            throw new NotFoundException();
+        }
+
+        this.waitlistRepository.deleteByUser(id);
+        this.sessionService.releaseSeats(Collections.singletonList(id));
+        if (this.userRepository.removeByIdAndEmail(id, email) == 0) {
+            // Deleted or renamed meanwhile; throwing rolls the bookings and the waiting list back as well
+            throw new NotFoundException();
+        }
+        this.revocationList.revokeUser(id);
     }
 
+    /**
+     * Deletes the users in one transaction, as {@link #delete(Long, String)} does one account.
+     *
+     * @return the number of users deleted, the ids that do not exist being skipped
+     */
+    @Transactional
+    public int deleteAll(Collection<Long> ids) {
+        this.waitlistRepository.deleteByUsers(ids);
+        this.sessionService.releaseSeats(ids);
+        int deleted = this.userRepository.removeAllById(ids);
+        ids.forEach(this.revocationList::revokeUser);
+        return deleted;
+    }
+
+    @Transactional(readOnly = true)
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    @Transactional(readOnly = true)
+    public List<User> findAllById(Collection<Long> ids) {
+        return this.userRepository.findAllById(ids);
+    }
 }
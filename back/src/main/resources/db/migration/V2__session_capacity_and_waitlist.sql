@@ -0,0 +1,25 @@
+-- Optimistic locking and seat accounting on sessions
+ALTER TABLE `SESSIONS` ADD COLUMN `version` BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE `SESSIONS` ADD COLUMN `capacity` INT;
+ALTER TABLE `SESSIONS` ADD COLUMN `participant_count` INT NOT NULL DEFAULT 0;
+
+UPDATE `SESSIONS` SET `participant_count` =
+  (SELECT COUNT(*) FROM `PARTICIPATE` WHERE `PARTICIPATE`.`session_id` = `SESSIONS`.`id`);
+
+ALTER TABLE `PARTICIPATE` ADD CONSTRAINT `UK_PARTICIPATE_SESSION_USER` UNIQUE (`session_id`, `user_id`);
+
+CREATE TABLE `WAITLIST` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT `UK_WAITLIST_SESSION_USER` UNIQUE (`session_id`, `user_id`)
+);
+
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+
+-- Keyset pagination, optionally by teacher, and the waitlist queue head
+CREATE INDEX `IDX_SESSIONS_DATE_ID` ON `SESSIONS` (`date`, `id`);
+CREATE INDEX `IDX_SESSIONS_TEACHER_DATE_ID` ON `SESSIONS` (`teacher_id`, `date`, `id`);
+CREATE INDEX `IDX_WAITLIST_SESSION_ID` ON `WAITLIST` (`session_id`, `id`);
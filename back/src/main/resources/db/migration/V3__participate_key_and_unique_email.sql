@@ -0,0 +1,11 @@
+-- A participation is identified by its session and user: the pair becomes the primary key, which InnoDB
+-- clusters rows on, and the reverse index serves lookups by user
+ALTER TABLE `PARTICIPATE` MODIFY `session_id` INT NOT NULL;
+ALTER TABLE `PARTICIPATE` MODIFY `user_id` INT NOT NULL;
+ALTER TABLE `PARTICIPATE` ADD PRIMARY KEY (`session_id`, `user_id`);
+ALTER TABLE `PARTICIPATE` DROP INDEX `UK_PARTICIPATE_SESSION_USER`;
+CREATE INDEX `IDX_PARTICIPATE_USER_SESSION` ON `PARTICIPATE` (`user_id`, `session_id`);
+
+-- Every authenticated request looks its user up by email
+ALTER TABLE `USERS` MODIFY `email` VARCHAR(255) NOT NULL;
+CREATE UNIQUE INDEX `UK_USERS_EMAIL` ON `USERS` (`email`);
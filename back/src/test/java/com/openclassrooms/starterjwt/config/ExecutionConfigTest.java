@@ -0,0 +1,122 @@
+package com.openclassrooms.starterjwt.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ExecutionConfigTest {
+
+    @Test
+    public void testPlatformModeKeepsTomcatPool() {
+        assertNull(ExecutionConfig.createExecutor(ExecutionConfig.Mode.PLATFORM, 4, 10));
+    }
+
+    @Test
+    public void testBoundedModeShedsLoadBeyondQueue() throws InterruptedException {
+        ExecutorService executor = ExecutionConfig.createExecutor(ExecutionConfig.Mode.BOUNDED, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertTrue(executor instanceof ThreadPoolExecutor);
+            assertEquals(1, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testVirtualModeRunsRequestsOnAnyRuntime() throws InterruptedException {
+        ExecutorService executor = ExecutionConfig.createExecutor(ExecutionConfig.Mode.VIRTUAL, 2, 10);
+        CountDownLatch ran = new CountDownLatch(1);
+        try {
+            assertNotNull(executor);
+            if (ExecutionConfig.virtualThreadExecutor() == null) {
+                assertTrue(executor instanceof ThreadPoolExecutor);
+            }
+
+            executor.execute(ran::countDown);
+
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualModeUsesVirtualThreadsWhenAvailable() {
+        ExecutorService virtual = Executors.newSingleThreadExecutor();
+        try {
+            assertSame(virtual, ExecutionConfig.createExecutor(ExecutionConfig.Mode.VIRTUAL, 2, 10, () -> virtual));
+        } finally {
+            virtual.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualModeFallsBackToBounded() {
+        ExecutorService executor = ExecutionConfig.createExecutor(ExecutionConfig.Mode.VIRTUAL, 2, 10, () -> null);
+        try {
+            assertTrue(executor instanceof ThreadPoolExecutor);
+            assertEquals(2, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+            assertEquals(10, ((ThreadPoolExecutor) executor).getQueue().remainingCapacity());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConfiguredModeIsHandedToTomcat() {
+        ExecutionConfig config = new ExecutionConfig(" Bounded ", 3, 5);
+        ProtocolHandler handler = mock(ProtocolHandler.class);
+        ArgumentCaptor<Executor> executor = ArgumentCaptor.forClass(Executor.class);
+
+        config.executionModeCustomizer().customize(handler);
+        config.shutdown();
+
+        verify(handler).setExecutor(executor.capture());
+        assertEquals(3, ((ThreadPoolExecutor) executor.getValue()).getMaximumPoolSize());
+        assertTrue(((ThreadPoolExecutor) executor.getValue()).isShutdown());
+    }
+
+    @Test
+    public void testPlatformModeLeavesTomcatExecutor() {
+        ExecutionConfig config = new ExecutionConfig("platform", 3, 5);
+        ProtocolHandler handler = mock(ProtocolHandler.class);
+
+        config.executionModeCustomizer().customize(handler);
+        config.shutdown();
+
+        verify(handler, never()).setExecutor(any());
+    }
+
+    @Test
+    public void testUnknownModeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ExecutionConfig("fibers", 3, 5));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.openclassrooms.starterjwt.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRoutingConfigTest {
+    private final ReplicaRoutingConfig config = new ReplicaRoutingConfig();
+
+    @Test
+    public void testPrimaryPoolUsesDataSourceProperties() {
+        try (HikariDataSource primary = config.primaryDataSource(properties())) {
+            assertEquals("jdbc:h2:mem:primary", primary.getJdbcUrl());
+            assertEquals("writer", primary.getUsername());
+            assertFalse(primary.isReadOnly());
+        }
+    }
+
+    @Test
+    public void testReplicaPoolIsReadOnly() {
+        try (HikariDataSource replica = config.replicaDataSource(properties(), "jdbc:h2:mem:replica", "reader", "secret")) {
+            assertEquals("jdbc:h2:mem:replica", replica.getJdbcUrl());
+            assertEquals("reader", replica.getUsername());
+            assertEquals("secret", replica.getPassword());
+            assertEquals("replica", replica.getPoolName());
+            assertTrue(replica.isReadOnly());
+        }
+    }
+
+    @Test
+    public void testDataSourceRoutesOnFirstStatement() throws SQLException {
+        DataSource dataSource = config.dataSource(pool(), pool());
+
+        assertTrue(dataSource instanceof LazyConnectionDataSourceProxy);
+        assertTrue(((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource() instanceof ReplicaRoutingDataSource);
+    }
+
+    @Test
+    public void testEntityManagerFactoryGetsReplicaRoutingDialect() {
+        BeanPostProcessor installer = ReplicaRoutingConfig.replicaRoutingJpaDialectInstaller();
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        Object other = new Object();
+
+        assertSame(factory, installer.postProcessBeforeInitialization(factory, "entityManagerFactory"));
+        assertTrue(factory.getJpaDialect() instanceof ReplicaRoutingJpaDialect);
+        assertSame(other, installer.postProcessBeforeInitialization(other, "other"));
+    }
+
+    private static DataSource pool() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(mock(Connection.class));
+        return pool;
+    }
+
+    private static DataSourceProperties properties() {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl("jdbc:h2:mem:primary");
+        properties.setUsername("writer");
+        return properties;
+    }
+}
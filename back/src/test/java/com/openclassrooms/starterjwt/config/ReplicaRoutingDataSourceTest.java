@@ -0,0 +1,42 @@
+package com.openclassrooms.starterjwt.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ReplicaRoutingDataSourceTest {
+    private final ReplicaRoutingDataSource dataSource =
+            new ReplicaRoutingDataSource(mock(DataSource.class), mock(DataSource.class));
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void testRoutesReadOnlyTransactionsToReplica() {
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, dataSource.determineCurrentLookupKey());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.Target.REPLICA, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void testUsingPrimaryOverridesReadOnly() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Object nested = ReplicaRoutingDataSource.usingPrimary(() -> {
+            assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, dataSource.determineCurrentLookupKey());
+            return ReplicaRoutingDataSource.usingPrimary(dataSource::determineCurrentLookupKey);
+        });
+
+        assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, nested);
+        assertEquals(ReplicaRoutingDataSource.Target.REPLICA, dataSource.determineCurrentLookupKey());
+    }
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.starterjwt.config;
+
+import org.hibernate.FlushMode;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRoutingJpaDialectTest {
+    private final ReplicaRoutingJpaDialect dialect = new ReplicaRoutingJpaDialect();
+
+    private EntityManager entityManager;
+
+    @BeforeEach
+    public void setup() {
+        SessionImplementor session = mock(SessionImplementor.class, RETURNS_DEEP_STUBS);
+        when(session.getHibernateFlushMode()).thenReturn(FlushMode.AUTO);
+        when(session.getJdbcCoordinator().getLogicalConnection().getConnectionHandlingMode())
+                .thenReturn(PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+        entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(entityManager.getProperties()).thenReturn(new HashMap<>());
+    }
+
+    @Test
+    public void testReplicaTransactionDoesNotStoreInCache() throws SQLException {
+        Object transactionData = dialect.beginTransaction(entityManager, definition(true));
+
+        verify(entityManager).setProperty(ReplicaRoutingJpaDialect.STORE_MODE, CacheStoreMode.BYPASS);
+
+        dialect.cleanupTransaction(transactionData);
+
+        verify(entityManager).setProperty(ReplicaRoutingJpaDialect.STORE_MODE, CacheStoreMode.USE);
+    }
+
+    @Test
+    public void testPrimaryTransactionsStoreInCache() throws SQLException {
+        dialect.cleanupTransaction(dialect.beginTransaction(entityManager, definition(false)));
+        ReplicaRoutingDataSource.usingPrimary(() -> {
+            try {
+                return dialect.beginTransaction(entityManager, definition(true));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        verify(entityManager, never()).setProperty(eq(ReplicaRoutingJpaDialect.STORE_MODE), any());
+    }
+
+    private static DefaultTransactionDefinition definition(boolean readOnly) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(readOnly);
+        return definition;
+    }
+}
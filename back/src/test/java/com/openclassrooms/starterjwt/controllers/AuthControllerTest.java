@@ -2,6 +2,7 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.services.UserService;
@@ -54,12 +55,13 @@ public class AuthControllerTest {
         when(userDetails.getUsername()).thenReturn("user@email.com");
         when(userDetails.getFirstName()).thenReturn("John");
         when(userDetails.getLastName()).thenReturn("Doe");
-        User user = new User();
-        user.setEmail("user@email.com");
-        user.setAdmin(false);
-        when(userRepository.findByEmail("user@email.com")).thenReturn(java.util.Optional.of(user));
+        when(userDetails.getAdmin()).thenReturn(true);
         ResponseEntity<?> response = authController.authenticateUser(loginRequest);
         assertEquals(200, response.getStatusCodeValue());
+        JwtResponse body = (JwtResponse) response.getBody();
+        assertNotNull(body);
+        assertTrue(body.getAdmin());
+        verify(userRepository, never()).findByEmail(anyString());
     }
 
     @Test
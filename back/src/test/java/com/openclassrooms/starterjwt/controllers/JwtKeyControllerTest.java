@@ -0,0 +1,105 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.payload.request.KeyRotationRequest;
+import com.openclassrooms.starterjwt.payload.response.JwtKeysResponse;
+import com.openclassrooms.starterjwt.security.jwt.JwtKeyRing;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.TokenAuthenticationCache;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class JwtKeyControllerTest {
+    private final JwtKeyRing keyRing = new JwtKeyRing("k1", "b2xkU2VjcmV0");
+
+    private final JwtUtils jwtUtils = mock(JwtUtils.class);
+
+    private final TokenAuthenticationCache authenticationCache = mock(TokenAuthenticationCache.class);
+
+    private final JwtKeyController jwtKeyController = new JwtKeyController(jwtUtils, authenticationCache);
+
+    @BeforeEach
+    public void setUp() {
+        when(jwtUtils.getKeyRing()).thenReturn(keyRing);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testRotateThenRetire() {
+        authenticate(true);
+
+        ResponseEntity<?> rotated = jwtKeyController.rotate(rotation("k2", "cm90YXRlZFNlY3JldA=="));
+
+        assertEquals(200, rotated.getStatusCodeValue());
+        assertEquals("k2", ((JwtKeysResponse) rotated.getBody()).getActiveKeyId());
+        assertEquals(new TreeSet<>(Arrays.asList("k1", "k2")), ((JwtKeysResponse) rotated.getBody()).getKeyIds());
+        verifyNoInteractions(authenticationCache);
+
+        ResponseEntity<?> retired = jwtKeyController.retire("k1");
+
+        assertEquals(200, retired.getStatusCodeValue());
+        assertEquals(Collections.singleton("k2"), ((JwtKeysResponse) retired.getBody()).getKeyIds());
+        verify(authenticationCache).evictAll();
+        assertEquals(Collections.singleton("k2"),
+                ((JwtKeysResponse) jwtKeyController.findAll().getBody()).getKeyIds());
+    }
+
+    @Test
+    public void testRetireRejectsActiveAndUnknownKeys() {
+        authenticate(true);
+
+        assertEquals(400, jwtKeyController.retire("k1").getStatusCodeValue());
+        assertEquals(404, jwtKeyController.retire("unknown").getStatusCodeValue());
+        assertEquals(Collections.singleton("k1"), keyRing.getKeyIds());
+        verifyNoInteractions(authenticationCache);
+    }
+
+    @Test
+    public void testRotateRejectsKeyIdInRing() {
+        authenticate(true);
+        jwtKeyController.rotate(rotation("k2", "cm90YXRlZFNlY3JldA=="));
+
+        assertEquals(409, jwtKeyController.rotate(rotation("k1", "cm90YXRlZFNlY3JldA==")).getStatusCodeValue());
+        assertEquals(409, jwtKeyController.rotate(rotation("k2", "b3RoZXJTZWNyZXQ=")).getStatusCodeValue());
+        assertEquals("k2", keyRing.getActiveKeyId());
+        assertEquals(new TreeSet<>(Arrays.asList("k1", "k2")), keyRing.getKeyIds());
+    }
+
+    @Test
+    public void testKeysRequireAdmin() {
+        authenticate(false);
+
+        assertEquals(401, jwtKeyController.findAll().getStatusCodeValue());
+        assertEquals(401, jwtKeyController.rotate(rotation("k2", "cm90YXRlZFNlY3JldA==")).getStatusCodeValue());
+        assertEquals(401, jwtKeyController.retire("k1").getStatusCodeValue());
+        assertEquals("k1", keyRing.getActiveKeyId());
+        verifyNoInteractions(authenticationCache);
+    }
+
+    private static void authenticate(boolean admin) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new UserDetailsImpl(1L, "user@email.com", "User", "Name", admin, null), null));
+    }
+
+    private static KeyRotationRequest rotation(String keyId, String secret) {
+        KeyRotationRequest request = new KeyRotationRequest();
+        request.setKeyId(keyId);
+        request.setSecret(secret);
+        return request;
+    }
+}
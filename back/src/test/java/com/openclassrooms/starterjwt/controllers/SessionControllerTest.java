@@ -1,17 +1,48 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionCompactDto;
+import com.openclassrooms.starterjwt.dto.SessionCursor;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
+import com.openclassrooms.starterjwt.dto.SessionPatchDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ImportException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.repository.projection.SessionCollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import com.openclassrooms.starterjwt.services.SessionBulkService;
 import com.openclassrooms.starterjwt.services.SessionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.Principal;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -20,10 +51,15 @@ public class SessionControllerTest {
     SessionService sessionService;
     @Mock
     SessionMapper sessionMapper;
+    @Mock
+    SessionBulkService sessionBulkService;
+    @Spy
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
     @InjectMocks
     SessionController sessionController;
 
     private Session session;
+    private SessionSummary summary;
     private SessionDto sessionDto;
 
     @BeforeEach
@@ -31,6 +67,7 @@ public class SessionControllerTest {
         MockitoAnnotations.openMocks(this);
         session = new Session();
         session.setId(1L);
+        summary = summary(1L, new Date(1000L));
         sessionDto = new SessionDto();
         sessionDto.setId(1L);
         sessionDto.setName("Test");
@@ -43,37 +80,188 @@ public class SessionControllerTest {
     @Test
     @SuppressWarnings("unchecked")
     public void testGetAllSessions() {
-        when(sessionService.findAll()).thenReturn(Arrays.asList(session));
-        when(sessionMapper.toDto(anyList())).thenReturn(Arrays.asList(sessionDto));
-        ResponseEntity<?> response = sessionController.findAll();
+        Map<Long, List<Long>> participants = Collections.singletonMap(1L, Arrays.asList(1L));
+        when(sessionService.findAllSummaries()).thenReturn(Arrays.asList(summary));
+        when(sessionService.findAllParticipantIds()).thenReturn(participants);
+        when(sessionMapper.toDto(Arrays.asList(summary), participants)).thenReturn(Arrays.asList(sessionDto));
+        SessionCollectionVersion version = collectionVersion(1L, 1L, 0L);
+        when(sessionService.getCollectionVersion()).thenReturn(version);
+        ResponseEntity<?> response = sessionController.findAll(request());
         assertEquals(200, response.getStatusCodeValue());
+        assertEquals(HttpCaching.etag(1L, 1L, 0L), response.getHeaders().getETag());
+        assertEquals("no-cache, private", response.getHeaders().getCacheControl());
         List<SessionDto> body = (List<SessionDto>) response.getBody();
         assertNotNull(body);
         assertFalse(body.isEmpty());
         assertEquals(sessionDto.getId(), body.get(0).getId());
     }
 
+    @Test
+    public void testGetAllSessionsNotModified() {
+        SessionCollectionVersion version = collectionVersion(1L, 1L, 3L);
+        when(sessionService.getCollectionVersion()).thenReturn(version);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/session");
+        servletRequest.addHeader("If-None-Match", HttpCaching.etag(1L, 1L, 3L));
+
+        ResponseEntity<?> response = sessionController.findAll(new ServletWebRequest(servletRequest, new MockHttpServletResponse()));
+
+        assertEquals(304, response.getStatusCodeValue());
+        assertNull(response.getBody());
+        verify(sessionService, never()).findAllSummaries();
+        verify(sessionService, never()).findAllParticipantIds();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamAllSessions() throws Exception {
+        Map<Long, List<Long>> participants = Collections.singletonMap(1L, Arrays.asList(1L));
+        SessionCollectionVersion version = collectionVersion(2L, 3L, 0L);
+        when(sessionService.getCollectionVersion()).thenReturn(version);
+        doAnswer(invocation -> {
+            BiConsumer<List<SessionSummary>, Map<Long, List<Long>>> consumer = invocation.getArgument(1);
+            consumer.accept(Arrays.asList(summary), participants);
+            consumer.accept(Arrays.asList(summary), Collections.emptyMap());
+            return null;
+        }).when(sessionService).forEachChunk(eq(SessionController.STREAM_CHUNK_SIZE), any());
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto));
+
+        ResponseEntity<StreamingResponseBody> response = sessionController.streamAll(request());
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(HttpCaching.etag(2L, 3L, 0L), response.getHeaders().getETag());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        verify(sessionService, never()).forEachChunk(anyInt(), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        SessionDto[] body = objectMapper.readValue(out.toByteArray(), SessionDto[].class);
+        assertEquals(2, body.length);
+        assertEquals(sessionDto.getId(), body[1].getId());
+        verify(sessionMapper).toDto(Arrays.asList(summary), participants);
+    }
+
+    @Test
+    public void testStreamAllSessionsNotModified() {
+        SessionCollectionVersion version = collectionVersion(1L, 1L, 3L);
+        when(sessionService.getCollectionVersion()).thenReturn(version);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/session");
+        servletRequest.addHeader("If-None-Match", HttpCaching.etag(1L, 1L, 3L));
+
+        ResponseEntity<StreamingResponseBody> response = sessionController.streamAll(new ServletWebRequest(servletRequest, new MockHttpServletResponse()));
+
+        assertEquals(304, response.getStatusCodeValue());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void testFindPageWithNextCursor() {
+        SessionSummary last = summary(2L, new Date(5000L));
+        List<SessionSummary> page = Arrays.asList(summary, last, summary(3L, new Date(6000L)));
+        when(sessionService.findPage(isNull(), isNull(), isNull(), isNull(), eq(3))).thenReturn(page);
+        when(sessionService.findParticipantIds(anyList())).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto, sessionDto));
+
+        ResponseEntity<?> response = sessionController.findPage(null, 2, null, null, null, null, null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        SessionPageDto body = (SessionPageDto) response.getBody();
+        assertNotNull(body);
+        assertEquals(2, body.getItems().size());
+        SessionCursor next = SessionCursor.decode(body.getNextCursor());
+        assertEquals(2L, next.getId());
+        assertEquals(5000L, next.getDate().getTime());
+    }
+
+    @Test
+    public void testFindPageLastPage() {
+        when(sessionService.findPage(any(), any(), any(), any(), anyInt())).thenReturn(Arrays.asList(summary));
+        when(sessionService.findParticipantIds(anyList())).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(sessionDto));
+
+        String cursor = new SessionCursor(new Date(1000L), 1L).encode();
+        ResponseEntity<?> response = sessionController.findPage(cursor, null, null, null, 1L, null, null);
+
+        SessionPageDto body = (SessionPageDto) response.getBody();
+        assertNotNull(body);
+        assertNull(body.getNextCursor());
+        verify(sessionService).findPage(any(SessionCursor.class), isNull(), isNull(), eq(1L), eq(SessionPages.DEFAULT_PAGE_SIZE + 1));
+    }
+
+    @Test
+    public void testFindPageSizeIsBounded() {
+        when(sessionService.findPage(any(), any(), any(), any(), anyInt())).thenReturn(Arrays.asList(summary));
+        when(sessionService.findParticipantIds(anyList())).thenReturn(Collections.emptyMap());
+
+        sessionController.findPage(null, 100000, null, null, null, null, null);
+
+        verify(sessionService).findPage(isNull(), isNull(), isNull(), isNull(), eq(SessionPages.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    public void testFindPageInvalidCursor() {
+        assertThrows(BadRequestException.class, () -> sessionController.findPage("not-a-cursor", null, null, null, null, null, null));
+    }
+
+    @Test
+    public void testFindCompactPage() {
+        Principal caller = () -> "caller@studio.com";
+        Set<Long> participated = Collections.singleton(1L);
+        SessionCompactDto compact = new SessionCompactDto();
+        when(sessionService.findPage(any(), any(), any(), any(), anyInt())).thenReturn(Arrays.asList(summary));
+        when(sessionService.findParticipatedSessionIds("caller@studio.com", Arrays.asList(summary))).thenReturn(participated);
+        when(sessionMapper.toCompactDto(Arrays.asList(summary), participated)).thenReturn(Arrays.asList(compact));
+
+        ResponseEntity<?> response = sessionController.findPage(null, null, null, null, null, "compact", caller);
+
+        SessionPageDto<?> body = (SessionPageDto<?>) response.getBody();
+        assertNotNull(body);
+        assertSame(compact, body.getItems().get(0));
+        verify(sessionService, never()).findParticipantIds(anyList());
+    }
+
+    @Test
+    public void testFindPageInvalidView() {
+        assertThrows(BadRequestException.class, () -> sessionController.findPage(null, null, null, null, null, "tiny", null));
+    }
+
     @Test
     public void testGetSessionById() {
-        when(sessionService.getById(1L)).thenReturn(session);
-        when(sessionMapper.toDto(session)).thenReturn(sessionDto);
-        ResponseEntity<?> response = sessionController.findById("1");
+        when(sessionService.findSummaryById(1L)).thenReturn(summary);
+        when(sessionService.findParticipantIds(Collections.singletonList(summary))).thenReturn(Collections.singletonMap(1L, Arrays.asList(1L)));
+        when(sessionMapper.toDto(summary, Arrays.asList(1L))).thenReturn(sessionDto);
+        when(sessionService.findVersion(1L)).thenReturn(4L);
+        ResponseEntity<?> response = sessionController.findById("1", request());
         assertEquals(200, response.getStatusCodeValue());
+        assertEquals(HttpCaching.etag(1L, 4L), response.getHeaders().getETag());
         SessionDto body = (SessionDto) response.getBody();
         assertNotNull(body);
         assertEquals(1L, body.getId());
     }
 
+    @Test
+    public void testGetSessionByIdNotModified() {
+        when(sessionService.findVersion(1L)).thenReturn(4L);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/session/1");
+        servletRequest.addHeader("If-None-Match", HttpCaching.etag(1L, 4L));
+
+        ResponseEntity<?> response = sessionController.findById("1", new ServletWebRequest(servletRequest, new MockHttpServletResponse()));
+
+        assertEquals(304, response.getStatusCodeValue());
+        verify(sessionService, never()).findSummaryById(anyLong());
+    }
+
     @Test
     public void testGetSessionByIdNotFound() {
-        when(sessionService.getById(2L)).thenReturn(null);
-        ResponseEntity<?> response = sessionController.findById("2");
+        when(sessionService.findVersion(2L)).thenReturn(null);
+        ResponseEntity<?> response = sessionController.findById("2", request());
         assertEquals(404, response.getStatusCodeValue());
+        verify(sessionService, never()).findSummaryById(anyLong());
     }
 
     @Test
     public void testGetSessionByIdBadRequest() {
-        ResponseEntity<?> response = sessionController.findById("notANumber");
+        ResponseEntity<?> response = sessionController.findById("notANumber", request());
         assertEquals(400, response.getStatusCodeValue());
     }
 
@@ -98,42 +286,132 @@ public class SessionControllerTest {
     @Test
     public void testUpdateSession() {
         when(sessionMapper.toEntity(sessionDto)).thenReturn(session);
-        when(sessionService.update(1L, session)).thenReturn(session);
-        when(sessionMapper.toDto(session)).thenReturn(sessionDto);
-        ResponseEntity<?> response = sessionController.update("1", sessionDto);
+        stubUpdatedSession(5L);
+
+        ResponseEntity<?> response = sessionController.update("1", sessionDto, null);
+
         assertEquals(200, response.getStatusCodeValue());
+        assertEquals(HttpCaching.etag(1L, 5L), response.getHeaders().getETag());
         SessionDto body = (SessionDto) response.getBody();
         assertNotNull(body);
         assertEquals(1L, body.getId());
+        verify(sessionService).update(1L, session, null);
     }
 
     @Test
     public void testUpdateSessionBadRequest() {
-        ResponseEntity<?> response = sessionController.update("notANumber", sessionDto);
+        ResponseEntity<?> response = sessionController.update("notANumber", sessionDto, null);
         assertEquals(400, response.getStatusCodeValue());
     }
 
     @Test
     public void testUpdateSessionNotFound() {
         when(sessionMapper.toEntity(sessionDto)).thenReturn(session);
-        when(sessionService.update(2L, session)).thenReturn(null);
-        ResponseEntity<?> response = sessionController.update("2", sessionDto);
-        assertEquals(200, response.getStatusCodeValue()); // Controller returns 200 even if not found
+        when(sessionService.update(2L, session, null)).thenThrow(new NotFoundException());
+
+        assertThrows(NotFoundException.class, () -> sessionController.update("2", sessionDto, null));
+    }
+
+    @Test
+    public void testUpdateSessionWithoutParticipantsKeepsThem() {
+        sessionDto.setUsers(null);
+        session.setUsers(Collections.emptyList());
+        when(sessionMapper.toEntity(sessionDto)).thenReturn(session);
+        stubUpdatedSession(5L);
+
+        sessionController.update("1", sessionDto, null);
+
+        verify(sessionService).update(eq(1L), argThat(updated -> updated.getUsers() == null), isNull());
+    }
+
+    @Test
+    public void testUpdateSessionIfMatch() {
+        when(sessionMapper.toEntity(sessionDto)).thenReturn(session);
+        when(sessionService.findVersion(1L)).thenReturn(4L, 5L);
+        when(sessionService.findSummaryById(1L)).thenReturn(summary);
+        when(sessionService.findParticipantIds(Collections.singletonList(summary))).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(summary, Collections.emptyList())).thenReturn(sessionDto);
+
+        ResponseEntity<?> response = sessionController.update("1", sessionDto, HttpCaching.etag(1L, 4L));
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(HttpCaching.etag(1L, 5L), response.getHeaders().getETag());
+        verify(sessionService).update(1L, session, 4L);
+    }
+
+    @Test
+    public void testUpdateSessionStaleIfMatch() {
+        when(sessionMapper.toEntity(sessionDto)).thenReturn(session);
+        when(sessionService.findVersion(1L)).thenReturn(5L);
+
+        assertThrows(PreconditionFailedException.class,
+                () -> sessionController.update("1", sessionDto, HttpCaching.etag(1L, 4L)));
+        verify(sessionService, never()).update(any(), any(), any());
+    }
+
+    @Test
+    public void testUpdateSessionIfMatchAny() {
+        when(sessionMapper.toEntity(sessionDto)).thenReturn(session);
+        stubUpdatedSession(5L);
+
+        sessionController.update("1", sessionDto, "*");
+
+        verify(sessionService).update(1L, session, 5L);
+    }
+
+    @Test
+    public void testUpdateSessionIfMatchUnknownSession() {
+        when(sessionMapper.toEntity(sessionDto)).thenReturn(session);
+        when(sessionService.findVersion(2L)).thenReturn(null);
+
+        assertThrows(NotFoundException.class, () -> sessionController.update("2", sessionDto, "*"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPatchSession() {
+        SessionPatchDto patch = new SessionPatchDto();
+        patch.setName("Renamed");
+        stubUpdatedSession(5L);
+        when(sessionService.patch(eq(1L), any(), isNull())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept(session);
+            return session;
+        });
+
+        ResponseEntity<?> response = sessionController.patch("1", patch, null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(HttpCaching.etag(1L, 5L), response.getHeaders().getETag());
+        verify(sessionMapper).patch(patch, session);
+    }
+
+    @Test
+    public void testPatchSessionStaleIfMatch() {
+        when(sessionService.findVersion(1L)).thenReturn(5L);
+
+        assertThrows(PreconditionFailedException.class,
+                () -> sessionController.patch("1", new SessionPatchDto(), HttpCaching.etag(1L, 4L)));
+        verify(sessionService, never()).patch(any(), any(), any());
+    }
+
+    @Test
+    public void testPatchSessionBadRequest() {
+        ResponseEntity<?> response = sessionController.patch("notANumber", new SessionPatchDto(), null);
+        assertEquals(400, response.getStatusCodeValue());
     }
 
     @Test
     public void testDeleteSession() {
-        when(sessionService.getById(1L)).thenReturn(session);
         doNothing().when(sessionService).delete(1L);
         ResponseEntity<?> response = sessionController.save("1");
         assertEquals(200, response.getStatusCodeValue());
+        verify(sessionService, never()).getById(anyLong());
     }
 
     @Test
     public void testDeleteSessionNotFound() {
-        when(sessionService.getById(2L)).thenReturn(null);
-        ResponseEntity<?> response = sessionController.save("2");
-        assertEquals(404, response.getStatusCodeValue());
+        doThrow(new NotFoundException()).when(sessionService).delete(2L);
+        assertThrows(NotFoundException.class, () -> sessionController.save("2"));
     }
 
     @Test
@@ -141,4 +419,89 @@ public class SessionControllerTest {
         ResponseEntity<?> response = sessionController.save("notANumber");
         assertEquals(400, response.getStatusCodeValue());
     }
+
+    @Test
+    public void testParticipateOrWait() {
+        when(sessionService.participateOrWait(1L, 2L)).thenReturn(true);
+        when(sessionService.participateOrWait(1L, 3L)).thenReturn(false);
+
+        assertEquals(200, sessionController.participateOrWait("1", "2").getStatusCodeValue());
+        assertEquals(202, sessionController.participateOrWait("1", "3").getStatusCodeValue());
+        assertEquals(400, sessionController.participateOrWait("1", "notANumber").getStatusCodeValue());
+    }
+
+    @Test
+    public void testLeaveWaitlist() {
+        assertEquals(200, sessionController.leaveWaitlist("1", "2").getStatusCodeValue());
+        verify(sessionService).leaveWaitlist(1L, 2L);
+        assertEquals(400, sessionController.leaveWaitlist("notANumber", "2").getStatusCodeValue());
+    }
+
+    @Test
+    public void testFindWaitlist() {
+        when(sessionService.findWaitlist(1L)).thenReturn(Arrays.asList(3L, 2L));
+
+        ResponseEntity<?> response = sessionController.findWaitlist("1");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(Arrays.asList(3L, 2L), response.getBody());
+        assertEquals(400, sessionController.findWaitlist("notANumber").getStatusCodeValue());
+    }
+
+    @Test
+    public void testImportSessions() {
+        when(sessionBulkService.importSessions(any(), eq(SessionBulkService.Format.CSV))).thenReturn(2);
+        when(sessionBulkService.importSessions(any(), eq(SessionBulkService.Format.NDJSON)))
+                .thenThrow(new ImportException(3, "name must not be blank"));
+
+        ResponseEntity<?> imported = sessionController.importSessions(
+                MediaType.parseMediaType("text/csv;charset=UTF-8"), new ByteArrayInputStream(new byte[0]));
+        ResponseEntity<?> rejected = sessionController.importSessions(
+                MediaType.parseMediaType("application/x-ndjson"), new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(200, imported.getStatusCodeValue());
+        assertEquals("Imported 2 sessions", ((MessageResponse) imported.getBody()).getMessage());
+        assertEquals(400, rejected.getStatusCodeValue());
+        assertEquals("Line 3: name must not be blank", ((MessageResponse) rejected.getBody()).getMessage());
+    }
+
+    @Test
+    public void testExportSessions() throws Exception {
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        ResponseEntity<StreamingResponseBody> response = sessionController.exportSessions("csv", request);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(MediaType.parseMediaType("text/csv"), response.getHeaders().getContentType());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(sessionBulkService).exportSessions(out, SessionBulkService.Format.CSV);
+
+        assertEquals(400, sessionController.exportSessions("xml", request).getStatusCodeValue());
+    }
+
+    private static SessionSummary summary(Long id, Date date) {
+        SessionSummary summary = mock(SessionSummary.class);
+        when(summary.getId()).thenReturn(id);
+        when(summary.getDate()).thenReturn(date);
+        return summary;
+    }
+
+    private static ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+
+    private static SessionCollectionVersion collectionVersion(Long count, Long idSum, Long versionSum) {
+        SessionCollectionVersion version = mock(SessionCollectionVersion.class);
+        when(version.getCount()).thenReturn(count);
+        when(version.getIdSum()).thenReturn(idSum);
+        when(version.getVersionSum()).thenReturn(versionSum);
+        return version;
+    }
+
+    private void stubUpdatedSession(Long version) {
+        when(sessionService.findVersion(1L)).thenReturn(version);
+        when(sessionService.findSummaryById(1L)).thenReturn(summary);
+        when(sessionService.findParticipantIds(Collections.singletonList(summary))).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(summary, Collections.emptyList())).thenReturn(sessionDto);
+    }
 }
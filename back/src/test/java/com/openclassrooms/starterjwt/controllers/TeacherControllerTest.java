@@ -3,6 +3,7 @@ package com.openclassrooms.starterjwt.controllers;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +11,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -61,14 +65,30 @@ public class TeacherControllerTest {
     public void testFindAll() {
         when(teacherService.findAll()).thenReturn(Arrays.asList(teacher));
         when(teacherMapper.toDto(anyList())).thenReturn(Arrays.asList(teacherDto));
-        ResponseEntity<?> response = teacherController.findAll();
+        CollectionVersion version = collectionVersion();
+        when(teacherService.getCollectionVersion()).thenReturn(version);
+        ResponseEntity<?> response = teacherController.findAll(new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
         assertEquals(200, response.getStatusCodeValue());
+        assertEquals(HttpCaching.etag(1L, 1L, teacher.getUpdatedAt()), response.getHeaders().getETag());
         List<TeacherDto> body = (List<TeacherDto>) response.getBody();
         assertNotNull(body);
         assertFalse(body.isEmpty());
         assertEquals(teacherDto.getId(), body.get(0).getId());
     }
 
+    @Test
+    public void testFindAllNotModified() {
+        CollectionVersion version = collectionVersion();
+        when(teacherService.getCollectionVersion()).thenReturn(version);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/teacher");
+        servletRequest.addHeader("If-None-Match", HttpCaching.etag(1L, 1L, teacher.getUpdatedAt()));
+
+        ResponseEntity<?> response = teacherController.findAll(new ServletWebRequest(servletRequest, new MockHttpServletResponse()));
+
+        assertEquals(304, response.getStatusCodeValue());
+        verify(teacherService, never()).findAll();
+    }
+
     @Test
     public void testFindByIdNotFound() {
         when(teacherService.findById(2L)).thenReturn(null);
@@ -81,4 +101,12 @@ public class TeacherControllerTest {
         ResponseEntity<?> response = teacherController.findById("notANumber");
         assertEquals(400, response.getStatusCodeValue());
     }
+
+    private CollectionVersion collectionVersion() {
+        CollectionVersion version = mock(CollectionVersion.class);
+        when(version.getCount()).thenReturn(1L);
+        when(version.getIdSum()).thenReturn(1L);
+        when(version.getLastUpdated()).thenReturn(teacher.getUpdatedAt());
+        return version;
+    }
 }
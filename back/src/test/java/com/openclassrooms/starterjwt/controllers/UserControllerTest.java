@@ -1,8 +1,17 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.dto.SessionCursor;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.UserPurgeService;
 import com.openclassrooms.starterjwt.services.UserService;
 import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.dto.UserPurgeDto;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +19,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -18,6 +34,12 @@ public class UserControllerTest {
     UserService userService;
     @Mock
     UserMapper userMapper;
+    @Mock
+    SessionService sessionService;
+    @Mock
+    SessionMapper sessionMapper;
+    @Mock
+    UserPurgeService userPurgeService;
     @InjectMocks
     UserController userController;
 
@@ -55,4 +77,90 @@ public class UserControllerTest {
         ResponseEntity<?> response = userController.findById("notANumber");
         assertEquals(400, response.getStatusCodeValue());
     }
+
+    @Test
+    public void testFindSessions() {
+        SessionSummary first = mock(SessionSummary.class), second = mock(SessionSummary.class);
+        when(first.getId()).thenReturn(3L);
+        when(first.getDate()).thenReturn(new Date(1000L));
+        when(sessionService.findUserPage(eq(1L), isNull(), isNull(), isNull(), eq(2))).thenReturn(Arrays.asList(first, second));
+        when(sessionService.findParticipantIds(anyList())).thenReturn(Collections.emptyMap());
+        when(sessionMapper.toDto(anyList(), anyMap())).thenReturn(Arrays.asList(new SessionDto()));
+
+        ResponseEntity<?> response = userController.findSessions("1", null, 1, null, null, null, null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        SessionPageDto body = (SessionPageDto) response.getBody();
+        assertNotNull(body);
+        assertEquals(1, body.getItems().size());
+        assertEquals(3L, SessionCursor.decode(body.getNextCursor()).getId());
+        verify(sessionService).findParticipantIds(Collections.singletonList(first));
+    }
+
+    @Test
+    public void testDeleteUser() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new UserDetailsImpl(1L, "user@email.com", "User", "Name", false, null), null));
+        try {
+            ResponseEntity<?> response = userController.save("1");
+            assertEquals(200, response.getStatusCodeValue());
+            verify(userService).delete(1L, "user@email.com");
+            verify(userService, never()).findById(anyLong());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void testDeleteUserBadRequest() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new UserDetailsImpl(1L, "user@email.com", "User", "Name", false, null), null));
+        try {
+            ResponseEntity<?> response = userController.save("notANumber");
+            assertEquals(400, response.getStatusCodeValue());
+            verifyNoInteractions(userService);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void testPurge() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new UserDetailsImpl(1L, "admin@email.com", "Admin", "Name", true, null), null));
+        try {
+            UserPurgeDto purge = new UserPurgeDto("job", UserPurgeDto.Status.QUEUED, 2, 0, 0, 0);
+            when(userPurgeService.purge(Arrays.asList(2L, 3L))).thenReturn(purge);
+            when(userPurgeService.find("job")).thenReturn(purge);
+
+            ResponseEntity<?> response = userController.purge(Arrays.asList(2L, 3L));
+            assertEquals(202, response.getStatusCodeValue());
+            assertEquals("/api/user/purge/job", response.getHeaders().getLocation().toString());
+            assertSame(purge, response.getBody());
+            assertEquals(200, userController.findPurge("job").getStatusCodeValue());
+            assertEquals(404, userController.findPurge("unknown").getStatusCodeValue());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void testPurgeRequiresAdmin() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new UserDetailsImpl(1L, "user@email.com", "User", "Name", false, null), null));
+        try {
+            assertEquals(401, userController.purge(Arrays.asList(2L, 3L)).getStatusCodeValue());
+            assertEquals(401, userController.findPurge("job").getStatusCodeValue());
+            verifyNoInteractions(userPurgeService);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void testFindSessionsBadRequest() {
+        ResponseEntity<?> response = userController.findSessions("notANumber", null, null, null, null, null, null);
+        assertEquals(400, response.getStatusCodeValue());
+        verifyNoInteractions(sessionService);
+    }
 }
@@ -0,0 +1,37 @@
+package com.openclassrooms.starterjwt.dto;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SessionCursorTest {
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        SessionSummary session = mock(SessionSummary.class);
+        when(session.getId()).thenReturn(42L);
+        when(session.getDate()).thenReturn(new Date(1700000000000L));
+
+        SessionCursor decoded = SessionCursor.decode(SessionCursor.of(session).encode());
+
+        assertEquals(42L, decoded.getId());
+        assertEquals(1700000000000L, decoded.getDate().getTime());
+    }
+
+    @Test
+    public void testDecodeGarbage() {
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode("%%%"));
+    }
+
+    @Test
+    public void testDecodeMissingSeparator() {
+        String token = java.util.Base64.getUrlEncoder().encodeToString("12345".getBytes());
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode(token));
+    }
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConflictExceptionTest {
+
+    @Test
+    public void testConflictExceptionIsRuntimeException() {
+        ConflictException exception = new ConflictException();
+        assertTrue(exception instanceof RuntimeException);
+    }
+
+    @Test
+    public void testConflictExceptionHasCorrectResponseStatus() {
+        ResponseStatus responseStatus = ConflictException.class.getAnnotation(ResponseStatus.class);
+        assertNotNull(responseStatus);
+        assertEquals(HttpStatus.CONFLICT, responseStatus.value());
+    }
+}
\ No newline at end of file
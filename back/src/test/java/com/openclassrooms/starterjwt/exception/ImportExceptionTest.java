@@ -0,0 +1,25 @@
+package com.openclassrooms.starterjwt.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImportExceptionTest {
+
+    @Test
+    public void testImportExceptionNamesLine() {
+        ImportException exception = new ImportException(3, "name must not be blank");
+        assertTrue(exception instanceof RuntimeException);
+        assertEquals(3, exception.getLine());
+        assertEquals("Line 3: name must not be blank", exception.getMessage());
+    }
+
+    @Test
+    public void testImportExceptionHasCorrectResponseStatus() {
+        ResponseStatus responseStatus = ImportException.class.getAnnotation(ResponseStatus.class);
+        assertNotNull(responseStatus);
+        assertEquals(HttpStatus.BAD_REQUEST, responseStatus.value());
+    }
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreconditionFailedExceptionTest {
+
+    @Test
+    public void testPreconditionFailedExceptionIsRuntimeException() {
+        PreconditionFailedException exception = new PreconditionFailedException();
+        assertTrue(exception instanceof RuntimeException);
+    }
+
+    @Test
+    public void testPreconditionFailedExceptionHasCorrectResponseStatus() {
+        ResponseStatus responseStatus = PreconditionFailedException.class.getAnnotation(ResponseStatus.class);
+        assertNotNull(responseStatus);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, responseStatus.value());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServiceUnavailableExceptionTest {
+
+    @Test
+    public void testServiceUnavailableExceptionIsRuntimeException() {
+        ServiceUnavailableException exception = new ServiceUnavailableException();
+        assertTrue(exception instanceof RuntimeException);
+    }
+
+    @Test
+    public void testServiceUnavailableExceptionHasCorrectResponseStatus() {
+        ResponseStatus responseStatus = ServiceUnavailableException.class.getAnnotation(ResponseStatus.class);
+        assertNotNull(responseStatus);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseStatus.value());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnauthorizedExceptionTest {
+
+    @Test
+    public void testUnauthorizedExceptionIsRuntimeException() {
+        UnauthorizedException exception = new UnauthorizedException();
+        assertTrue(exception instanceof RuntimeException);
+    }
+
+    @Test
+    public void testUnauthorizedExceptionHasCorrectResponseStatus() {
+        ResponseStatus responseStatus = UnauthorizedException.class.getAnnotation(ResponseStatus.class);
+        assertNotNull(responseStatus);
+        assertEquals(HttpStatus.UNAUTHORIZED, responseStatus.value());
+    }
+}
\ No newline at end of file
@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -85,7 +86,33 @@ public class AuthenticationIT {
     //            .andExpect(jsonPath("$.firstName").value("Integration"))
     //            .andExpect(jsonPath("$.lastName").value("Test"))
     //            .andReturn();
-    //}
+    }
+
+    @Test
+    public void testLoginRehashesOutdatedPassword() throws Exception {
+        // Stored before prefixed hashes, with a lower cost than configured
+        userRepository.save(new User(TEST_EMAIL, "Test", "Legacy", new BCryptPasswordEncoder(4).encode(TEST_PASSWORD), true));
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail(TEST_EMAIL);
+        loginRequest.setPassword(TEST_PASSWORD);
+
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.admin").value(true));
+
+        String rehashed = userRepository.findByEmail(TEST_EMAIL).get().getPassword();
+        assertTrue(rehashed.startsWith("{bcrypt}$2a$10$"), rehashed);
+        assertTrue(passwordEncoder.matches(TEST_PASSWORD, rehashed));
+        assertFalse(passwordEncoder.upgradeEncoding(rehashed));
+
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk());
+        assertEquals(rehashed, userRepository.findByEmail(TEST_EMAIL).get().getPassword());
+    }
 
     @Test
     public void testLoginWithInvalidCredentials() throws Exception {
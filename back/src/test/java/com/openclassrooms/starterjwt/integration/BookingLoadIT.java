@@ -0,0 +1,127 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A booking rush against a real Tomcat: 5000 clients book at once, spread over 10 sessions. Each subclass runs it in
+ * one execution mode, on its own database since it commits its data, and logs the throughput reached.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.hikari.maximum-pool-size=20"
+})
+@Log4j2
+public abstract class BookingLoadIT {
+    static final int SESSIONS = 10;
+    static final int BOOKINGS = 5000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Test
+    public void testBookingRush() throws Exception {
+        Teacher teacher = teacherRepository.save(new Teacher()
+                .setFirstName("Rush").setLastName("Teacher")
+                .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()));
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions.add(sessionRepository.save(new Session()
+                    .setName("Rush " + i).setDate(new Date()).setDescription("Booking rush").setTeacher(teacher)));
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            users.add(new User("rush" + i + "@studio.com", "Rush", "User", "password", false));
+        }
+        users = userRepository.saveAll(users);
+
+        User admin = userRepository.save(new User("rush-admin@studio.com", "Rush", "Admin", "password", true));
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(
+                new UserDetailsImpl(admin.getId(), admin.getEmail(), "Rush", "Admin", true, null), null, null));
+
+        // One thread per booking, all released together
+        ExecutorService clients = Executors.newFixedThreadPool(BOOKINGS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> responses = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            URL url = new URL("http://localhost:" + port + "/api/session/"
+                    + sessions.get(i % SESSIONS).getId() + "/participate/" + users.get(i).getId());
+            responses.add(clients.submit(() -> {
+                start.await();
+                return book(url, token);
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        int ok = 0;
+        for (Future<Integer> response : responses) {
+            if (response.get(2, TimeUnit.MINUTES) == 200) {
+                ok++;
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        clients.shutdown();
+        log.info("{}: booked {}/{} sessions in {} ms ({} bookings/s)", getClass().getSimpleName(),
+                ok, BOOKINGS, elapsedMs, ok * 1000 / Math.max(1, elapsedMs));
+
+        assertEquals(BOOKINGS, ok);
+        assertEquals(BOOKINGS, jdbcTemplate.queryForObject("select count(*) from PARTICIPATE", Integer.class));
+        for (Session session : sessions) {
+            assertEquals(BOOKINGS / SESSIONS, sessionRepository.findVersionById(session.getId()).orElse(0L));
+        }
+    }
+
+    private static int book(URL url, String token) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * The booking rush on as many workers as pooled connections. The queue holds the whole rush here; with the default
+ * capacity, the requests beyond it would be shed instead.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bookingload-bounded;DB_CLOSE_DELAY=-1",
+        "oc.app.execution.mode=bounded",
+        "oc.app.execution.queueCapacity=" + BookingLoadIT.BOOKINGS
+})
+public class BoundedBookingLoadIT extends BookingLoadIT {
+}
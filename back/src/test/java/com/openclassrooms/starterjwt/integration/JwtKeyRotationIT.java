@@ -0,0 +1,85 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Rotates the signing key of a running application. The key ring is shared by the whole context, so this runs in a
+ * context and on a database of its own.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:jwtkeys;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+public class JwtKeyRotationIT {
+    private static final String ROTATED_SECRET = "cm90YXRlZFNlY3JldA==";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Test
+    public void testRotateAndRetireKeyAtRuntime() throws Exception {
+        User admin = userRepository.save(new User("keys-admin@studio.com", "Keys", "Admin", "password", true));
+        String before = token(admin);
+
+        mockMvc.perform(get("/api/jwt/keys").header("Authorization", "Bearer " + before))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.activeKeyId").value("default"));
+        mockMvc.perform(post("/api/jwt/keys").header("Authorization", "Bearer " + before)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"keyId\":\"rotated\",\"secret\":\"\"}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/jwt/keys").header("Authorization", "Bearer " + before)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"keyId\":\"rotated\",\"secret\":\"" + ROTATED_SECRET + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.activeKeyId").value("rotated"))
+                .andExpect(jsonPath("$.keyIds.length()").value(2));
+
+        String after = token(admin);
+        assertEquals("rotated", Jwts.parser().setSigningKey(ROTATED_SECRET).parseClaimsJws(after).getHeader().getKeyId());
+        mockMvc.perform(get("/api/jwt/keys").header("Authorization", "Bearer " + before))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/jwt/keys").header("Authorization", "Bearer " + after)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"keyId\":\"default\",\"secret\":\"" + ROTATED_SECRET + "\"}"))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(delete("/api/jwt/keys/default").header("Authorization", "Bearer " + after))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.keyIds[0]").value("rotated"));
+
+        // Authenticated, and cached, before the key was retired
+        mockMvc.perform(get("/api/jwt/keys").header("Authorization", "Bearer " + before))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/jwt/keys").header("Authorization", "Bearer " + after))
+                .andExpect(status().isOk());
+    }
+
+    private String token(User user) {
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(new UserDetailsImpl(
+                user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), user.isAdmin(), null), null, null));
+    }
+}
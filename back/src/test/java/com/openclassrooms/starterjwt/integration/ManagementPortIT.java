@@ -0,0 +1,50 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * With the actuator on a port of its own, Prometheus scrapes it there without a token; that port serves nothing else.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.server.port=0"
+})
+@AutoConfigureMetrics
+public class ManagementPortIT {
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void testScrapeOnManagementPortNeedsNoToken() {
+        ResponseEntity<String> scrape = restTemplate.getForEntity(
+                "http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+
+        assertEquals(HttpStatus.OK, scrape.getStatusCode());
+        assertTrue(scrape.getBody().contains("jvm_memory_used_bytes"));
+    }
+
+    @Test
+    public void testApplicationPortDoesNotServeScrape() {
+        assertNotEquals(port, managementPort);
+        assertEquals(HttpStatus.UNAUTHORIZED, restTemplate.getForEntity(
+                "http://localhost:" + port + "/actuator/prometheus", String.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(
+                "http://localhost:" + managementPort + "/api/session", String.class).getStatusCode());
+    }
+}
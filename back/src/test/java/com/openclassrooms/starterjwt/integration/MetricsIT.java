@@ -0,0 +1,61 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricsIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    public void testPrometheusScrapeExposesApplicationMetrics() throws Exception {
+        mockMvc.perform(get("/api/teacher")).andExpect(status().isOk());
+        passwordEncoder.matches("password", passwordEncoder.encode("password"));
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_count{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/teacher\",}")))
+                .andExpect(content().string(containsString("yoga_service_seconds_count{class=\"TeacherService\",method=\"findAll\",outcome=\"success\",}")))
+                .andExpect(content().string(containsString("security_password_seconds_count{operation=\"matches\",}")))
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"teachers\"")))
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"authTokens\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")));
+    }
+
+    @Test
+    public void testJwtFailuresAreCounted() throws Exception {
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer not.a.token"))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/actuator/prometheus").with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("jwt_validation_failures_total{reason=\"malformed\",}")));
+    }
+
+    @Test
+    public void testScrapeNeedsTokenOnApplicationPort() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+}
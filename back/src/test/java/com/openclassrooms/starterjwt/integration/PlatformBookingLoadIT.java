@@ -0,0 +1,13 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * The booking rush on Tomcat's own thread pool.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bookingload-platform;DB_CLOSE_DELAY=-1",
+        "oc.app.execution.mode=platform"
+})
+public class PlatformBookingLoadIT extends BookingLoadIT {
+}
@@ -0,0 +1,251 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.config.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against two H2 databases standing for a primary and its replica. Nothing replicates between them, so each
+ * read shows which database it went to.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingIT.PRIMARY_URL,
+        "oc.app.datasource.replica.url=" + ReplicaRoutingIT.REPLICA_URL,
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingIT {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routingprimary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routingreplica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    public void setup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+
+        // Hibernate only creates the schema on the primary
+        replica.execute("drop all objects");
+        for (String statement : primary.queryForList("script nodata", String.class)) {
+            replica.execute(statement);
+        }
+        replica.update("insert into TEACHERS (id, first_name, last_name, created_at, updated_at)"
+                + " values (1000, 'Replica', 'Teacher', current_timestamp, current_timestamp)");
+        replica.update("insert into SESSIONS (id, name, date, description, teacher_id, participant_count, version,"
+                + " created_at, updated_at) values (1000, 'Replica', current_timestamp, 'Read', 1000, 0, 0,"
+                + " current_timestamp, current_timestamp)");
+        replica.update("insert into USERS (id, email, first_name, last_name, password, admin, created_at, updated_at)"
+                + " values (1000, 'replica@studio.com', 'Replica', 'User', 'password', false,"
+                + " current_timestamp, current_timestamp)");
+
+        entityManagerFactory.getCache().evictAll();
+        teacherService.evictAll();
+    }
+
+    @Test
+    public void testWritesGoToPrimary() {
+        Teacher teacher = teacherRepository.save(new Teacher()
+                .setFirstName("Primary").setLastName("Teacher")
+                .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()));
+
+        assertEquals(1, count(primary, "TEACHERS"));
+        assertEquals(1, count(replica, "TEACHERS"));
+        assertEquals("Primary", primary.queryForObject(
+                "select first_name from TEACHERS where id = ?", String.class, teacher.getId()));
+    }
+
+    @Test
+    public void testReadOnlyTransactionsGoToReplica() {
+        Session written = sessionRepository.save(new Session()
+                .setName("Primary").setDate(new Date()).setDescription("Written")
+                .setTeacher(teacherRepository.save(new Teacher()
+                        .setFirstName("Primary").setLastName("Teacher")
+                        .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()))));
+        entityManagerFactory.getCache().evictAll();
+
+        assertEquals("Replica", sessionService.getById(1000L).getName());
+        assertNull(sessionService.getById(written.getId()));
+        assertEquals("Replica", teacherService.findById(1000L).getFirstName());
+        assertEquals(1, teacherService.findAll().size());
+        assertEquals("replica@studio.com", userService.findById(1000L).getEmail());
+        assertEquals(1000L, userDetailsService.loadUserByUsername("replica@studio.com").getId());
+    }
+
+    @Test
+    public void testUsingPrimaryReadsOwnWrites() {
+        Session written = sessionRepository.save(new Session()
+                .setName("Primary").setDate(new Date()).setDescription("Written")
+                .setTeacher(teacherRepository.save(new Teacher()
+                        .setFirstName("Primary").setLastName("Teacher")
+                        .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()))));
+        entityManagerFactory.getCache().evictAll();
+
+        assertEquals("Primary", ReplicaRoutingDataSource.usingPrimary(
+                () -> sessionService.findSummaryById(written.getId())).getName());
+        assertNull(sessionService.findSummaryById(written.getId()));
+    }
+
+    @Test
+    public void testReplicaReadsAreNotCached() {
+        Session written = sessionRepository.save(new Session()
+                .setName("Primary").setDate(new Date()).setDescription("Written"));
+        replica.update("insert into SESSIONS (id, name, date, description, participant_count, version,"
+                + " created_at, updated_at) values (?, 'Lagging', current_timestamp, 'Read', 0, 0,"
+                + " current_timestamp, current_timestamp)", written.getId());
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals("Lagging", sessionService.getById(written.getId()).getName());
+        assertEquals(1000L, userDetailsService.loadUserByUsername("replica@studio.com").getId());
+
+        assertFalse(entityManagerFactory.getCache().contains(Session.class, written.getId()));
+        assertEquals(0, statistics.getSecondLevelCachePutCount());
+        assertEquals(0, statistics.getQueryCachePutCount());
+        assertEquals("Primary", ReplicaRoutingDataSource.usingPrimary(
+                () -> sessionService.getById(written.getId())).getName());
+    }
+
+    @Test
+    public void testPrimaryReadsAreCached() {
+        Session written = sessionRepository.save(new Session()
+                .setName("Primary").setDate(new Date()).setDescription("Written"));
+        entityManagerFactory.getCache().evictAll();
+
+        ReplicaRoutingDataSource.usingPrimary(() -> sessionService.getById(written.getId()));
+
+        assertTrue(entityManagerFactory.getCache().contains(Session.class, written.getId()));
+        assertEquals("Primary", sessionService.getById(written.getId()).getName());
+    }
+
+    @Test
+    public void testAuthenticationReadsReplica() {
+        userRepository.save(new User("primary@studio.com", "Primary", "User", "password", false));
+        entityManagerFactory.getCache().evictAll();
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("primary@studio.com"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin@studio.com", roles = {"ADMIN"})
+    public void testWriteAfterReadInRequestGoesToPrimary() throws Exception {
+        Teacher teacher = teacherRepository.save(new Teacher()
+                .setFirstName("Primary").setLastName("Teacher")
+                .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()));
+        User user = userRepository.save(new User("both@studio.com", "Both", "User", "password", false));
+        replica.update("insert into USERS (id, email, first_name, last_name, password, admin, created_at, updated_at)"
+                + " values (?, 'both@studio.com', 'Both', 'User', 'password', false,"
+                + " current_timestamp, current_timestamp)", user.getId());
+        entityManagerFactory.getCache().evictAll();
+        SessionDto session = new SessionDto();
+        session.setName("Created");
+        session.setDate(new Date());
+        session.setDescription("Participants read from the replica");
+        session.setTeacher_id(teacher.getId());
+        session.setUsers(Collections.singletonList(user.getId()));
+
+        // Reads the participants in a read-only transaction, then inserts the session within the same request
+        mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(session)))
+                .andExpect(status().isOk());
+
+        assertEquals(1, count(primary, "SESSIONS"));
+        assertEquals(1, count(primary, "PARTICIPATE"));
+        assertEquals(1, count(replica, "SESSIONS"));
+        assertEquals(0, count(replica, "PARTICIPATE"));
+    }
+
+    @Test
+    public void testSignUpChecksEmailOnPrimary() throws Exception {
+        userRepository.save(new User("taken@studio.com", "Primary", "User", "password", false));
+        SignupRequest signup = new SignupRequest();
+        signup.setEmail("taken@studio.com");
+        signup.setFirstName("Second");
+        signup.setLastName("User");
+        signup.setPassword("password");
+
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(signup)))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(1, count(primary, "USERS"));
+    }
+
+    private static int count(JdbcTemplate database, String table) {
+        return database.queryForObject("select count(*) from " + table, Integer.class);
+    }
+}
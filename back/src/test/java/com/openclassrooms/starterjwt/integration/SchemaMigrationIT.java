@@ -0,0 +1,73 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Applies the migrations to H2 in MySQL mode and checks, with EXPLAIN, that the hot queries are index lookups
+ * rather than table scans.
+ */
+public class SchemaMigrationIT {
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migration;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    public static void drop() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testMigrationsApply() {
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "select count(*) from \"flyway_schema_history\" where \"version\" is not null and \"success\"", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from USERS where email = 'yoga@studio.com'", Integer.class));
+    }
+
+    @Test
+    public void testUserLookupsByEmailUseUniqueIndex() {
+        assertUsesIndex("UK_USERS_EMAIL", "select * from USERS where email = 'yoga@studio.com'");
+        assertUsesIndex("UK_USERS_EMAIL", "select id from USERS where email = 'yoga@studio.com' limit 1");
+    }
+
+    @Test
+    public void testParticipationLookupsUseKeys() {
+        assertUsesIndex("PRIMARY_KEY", "select user_id from PARTICIPATE where session_id = 1");
+        assertUsesIndex("PRIMARY_KEY", "select count(*) from PARTICIPATE where session_id = 1 and user_id = 2");
+        assertUsesIndex("IDX_PARTICIPATE_USER_SESSION", "select session_id from PARTICIPATE where user_id = 2");
+    }
+
+    @Test
+    public void testSessionListingsUseIndexes() {
+        assertUsesIndex("IDX_SESSIONS_DATE_ID", "select id from SESSIONS where date >= current_timestamp"
+                + " order by date, id limit 20");
+        assertUsesIndex("IDX_SESSIONS_TEACHER_DATE_ID", "select id from SESSIONS where teacher_id = 1"
+                + " order by date, id limit 20");
+    }
+
+    @Test
+    public void testEmailIsUnique() {
+        assertThrows(Exception.class, () -> jdbcTemplate.update(
+                "insert into USERS (first_name, last_name, email, password) values ('A', 'B', 'yoga@studio.com', 'x')"));
+    }
+
+    private static void assertUsesIndex(String index, String query) {
+        String plan = jdbcTemplate.queryForObject("explain " + query, String.class);
+        assertNotNull(plan);
+        assertTrue(plan.contains(index), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+}
@@ -0,0 +1,214 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.config.SecondLevelCacheConfig;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Entities reach the second-level cache on commit, so this runs on its own database without a test transaction.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:secondlevel;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+public class SecondLevelCacheIT {
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    private Teacher teacher;
+
+    private Session session;
+
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+
+        teacher = teacherRepository.save(new Teacher()
+                .setFirstName("Cached").setLastName("Teacher")
+                .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()));
+        session = sessionRepository.save(new Session()
+                .setName("Cached").setDate(new Date()).setDescription("Read twice").setTeacher(teacher));
+        user = userRepository.save(new User("cached@studio.com", "Cached", "User", "password", false));
+
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void testSessionIsReadOnce() {
+        sessionService.getById(session.getId());
+        long statements = statistics.getPrepareStatementCount();
+
+        Session cached = sessionService.getById(session.getId());
+
+        assertEquals("Cached", cached.getName());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.SESSION_REGION).getHitCount());
+    }
+
+    @Test
+    public void testParticipationIsVisibleThroughCache() {
+        assertTrue(participantIds().isEmpty());
+        assertEquals(0, sessionService.getById(session.getId()).getParticipantCount());
+
+        sessionService.participate(session.getId(), user.getId());
+
+        assertEquals(1, sessionService.getById(session.getId()).getParticipantCount());
+        assertEquals(Collections.singletonList(user.getId()), participantIds());
+
+        sessionService.noLongerParticipate(session.getId(), user.getId());
+
+        assertEquals(0, sessionService.getById(session.getId()).getParticipantCount());
+        assertTrue(participantIds().isEmpty());
+    }
+
+    @Test
+    public void testUpdateIsVisibleThroughCache() {
+        sessionService.getById(session.getId());
+
+        sessionService.update(session.getId(), new Session()
+                .setName("Renamed").setDate(new Date()).setDescription("Read again").setTeacher(teacher), null);
+
+        Session updated = sessionService.getById(session.getId());
+        assertEquals("Renamed", updated.getName());
+        assertEquals("Read again", updated.getDescription());
+    }
+
+    @Test
+    public void testDeleteIsVisibleThroughCache() {
+        sessionService.getById(session.getId());
+
+        sessionService.delete(session.getId());
+
+        assertNull(sessionService.getById(session.getId()));
+    }
+
+    @Test
+    public void testDeleteRunsWithoutLoading() {
+        sessionService.participate(session.getId(), user.getId());
+        statistics.clear();
+
+        sessionService.delete(session.getId());
+
+        // Waiting list, participations and the session itself
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertThrows(NotFoundException.class, () -> sessionService.delete(session.getId()));
+    }
+
+    @Test
+    public void testUserDeleteIsVisibleThroughCache() {
+        userDetailsService.loadUserByUsername(user.getEmail());
+
+        assertThrows(UnauthorizedException.class, () -> userService.delete(user.getId(), "other@studio.com"));
+        userService.delete(user.getId(), user.getEmail());
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername(user.getEmail()));
+        assertThrows(NotFoundException.class, () -> userService.delete(user.getId(), user.getEmail()));
+    }
+
+    @Test
+    public void testUserLookupIsServedFromCache() {
+        userDetailsService.loadUserByUsername(user.getEmail());
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(user.getId(), userDetailsService.loadUserByUsername(user.getEmail()).getId());
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    public void testUserChangeIsVisibleThroughCache() {
+        userDetailsService.loadUserByUsername(user.getEmail());
+
+        userRepository.save(user.setFirstName("Renamed"));
+
+        assertEquals("Renamed", userDetailsService.loadUserByUsername(user.getEmail()).getFirstName());
+    }
+
+    @Test
+    public void testRegionStatisticsArePublished() {
+        sessionService.getById(session.getId());
+        sessionService.getById(session.getId());
+
+        assertEquals(1, meterRegistry.get("hibernate.second.level.cache.requests")
+                .tag("region", SecondLevelCacheConfig.SESSION_REGION).tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("hibernate.second.level.cache.puts")
+                .tag("region", SecondLevelCacheConfig.SESSION_REGION)
+                .functionCounter().count());
+    }
+
+    private List<Long> participantIds() {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                sessionRepository.findById(session.getId()).get().getUsers().stream()
+                        .map(User::getId).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,203 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Imports commit, and exports and the streamed session list are written from another thread, so this runs on its own database without a test transaction.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+@WithMockUser(roles = {"ADMIN"})
+public class SessionBulkIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Teacher teacher;
+
+    @BeforeEach
+    public void setup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+        teacher = teacherRepository.save(new Teacher()
+                .setFirstName("Bulk").setLastName("Teacher")
+                .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()));
+    }
+
+    @Test
+    public void testImportNdjsonInBatches() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1234; i++) {
+            body.append("{\"name\":\"Session ").append(i).append("\",\"date\":\"2030-01-01T10:00:00Z\",")
+                    .append("\"teacher_id\":").append(teacher.getId()).append(",")
+                    .append("\"description\":\"Imported\",\"capacity\":12}\n");
+        }
+
+        mockMvc.perform(post("/api/session/import").contentType("application/x-ndjson").content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Imported 1234 sessions"));
+
+        assertEquals(1234, sessionRepository.count());
+        assertEquals(12, sessionRepository.findAll().get(0).getCapacity());
+    }
+
+    @Test
+    public void testImportIsAllOrNothing() throws Exception {
+        String body = "{\"name\":\"Valid\",\"date\":\"2030-01-01T10:00:00Z\",\"teacher_id\":" + teacher.getId()
+                + ",\"description\":\"ok\"}\n"
+                + "\n"
+                + "{\"name\":\"\",\"date\":\"2030-01-01T10:00:00Z\",\"teacher_id\":" + teacher.getId()
+                + ",\"description\":\"blank name\"}\n";
+
+        mockMvc.perform(post("/api/session/import").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(startsWith("Line 3: name")));
+
+        String unknownTeacher = "{\"name\":\"Valid\",\"date\":\"2030-01-01T10:00:00Z\",\"teacher_id\":" + teacher.getId()
+                + ",\"description\":\"ok\"}\n"
+                + "{\"name\":\"Orphan\",\"date\":\"2030-01-01T10:00:00Z\",\"teacher_id\":"
+                + (teacher.getId() + 1000) + ",\"description\":\"no teacher\"}\n";
+        mockMvc.perform(post("/api/session/import").contentType("application/x-ndjson").content(unknownTeacher))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Line 2: unknown teacher " + (teacher.getId() + 1000)));
+
+        assertEquals(0, sessionRepository.count());
+    }
+
+    @Test
+    public void testCsvRoundTrip() throws Exception {
+        String csv = "name,date,teacher_id,description,capacity\n"
+                + "Morning flow,2030-01-01T08:00:00Z," + teacher.getId() + ",\"Stretch, breathe\",10\n"
+                + "Evening,2030-01-01T19:00:00Z," + teacher.getId() + ",\"Quotes \"\"inside\"\" and\na new line\",\n";
+
+        mockMvc.perform(post("/api/session/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Imported 2 sessions"));
+
+        String exported = export("csv");
+        String[] lines = exported.split("\n", 2);
+        assertEquals("id,name,date,teacher_id,description,capacity,participant_count", lines[0]);
+        assertTrue(lines[1].contains(",Morning flow,2030-01-01T08:00:00Z," + teacher.getId() + ",\"Stretch, breathe\",10,0\n"));
+        assertTrue(lines[1].contains(",\"Quotes \"\"inside\"\" and\na new line\",,0\n"));
+
+        // The export imports back as is
+        mockMvc.perform(post("/api/session/import").contentType("text/csv").content(exported))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Imported 2 sessions"));
+        assertEquals(4, sessionRepository.count());
+    }
+
+    @Test
+    public void testNdjsonExport() throws Exception {
+        String body = "{\"name\":\"Exported\",\"date\":\"2030-01-01T10:00:00Z\",\"teacher_id\":" + teacher.getId()
+                + ",\"description\":\"line one\"}\n";
+        mockMvc.perform(post("/api/session/import").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk());
+
+        String exported = export("ndjson");
+
+        assertTrue(exported.endsWith("\n"));
+        assertEquals(1, exported.split("\n").length);
+        assertTrue(exported.contains("\"name\":\"Exported\",\"date\":\"2030-01-01T10:00:00Z\",\"teacher_id\":" + teacher.getId()));
+        assertTrue(exported.contains("\"capacity\":null,\"participant_count\":0}"));
+    }
+
+    @Test
+    public void testExportWithoutTeacher() throws Exception {
+        jdbcTemplate.update("insert into SESSIONS (name, date, description, participant_count, version, created_at, updated_at)"
+                + " values ('Unassigned', current_timestamp, 'No teacher yet', 0, 0, current_timestamp, current_timestamp)");
+
+        assertTrue(export("ndjson").contains("\"teacher_id\":null,"));
+        assertTrue(export("csv").contains(",,No teacher yet,,0\n"));
+    }
+
+    @Test
+    public void testStreamedListMatchesList() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            body.append("{\"name\":\"Session ").append(i).append("\",\"date\":\"2030-01-01T10:00:00Z\",")
+                    .append("\"teacher_id\":").append(teacher.getId()).append(",\"description\":\"Streamed\"}\n");
+        }
+        mockMvc.perform(post("/api/session/import").contentType("application/x-ndjson").content(body.toString()))
+                .andExpect(status().isOk());
+        User user = userRepository.save(new User("stream@studio.com", "Stream", "User", "password", false));
+        List<Long> ids = jdbcTemplate.queryForList("select id from SESSIONS order by id", Long.class);
+        // Participants in the first, a middle and the last chunk
+        for (Long id : new Long[]{ids.get(0), ids.get(700), ids.get(1199)}) {
+            jdbcTemplate.update("insert into PARTICIPATE (session_id, user_id) values (?, ?)", id, user.getId());
+        }
+
+        String listed = mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        MvcResult started = mockMvc.perform(get("/api/session").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Only the export lifts the timeout
+        assertNotEquals(-1, started.getRequest().getAsyncContext().getTimeout());
+        String streamed = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", started.getResponse().getHeader("ETag")))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(1200, objectMapper.readTree(streamed).size());
+        assertEquals(objectMapper.readTree(listed), objectMapper.readTree(streamed));
+        assertEquals(user.getId(), objectMapper.readTree(streamed).get(700).get("users").get(0).asLong());
+    }
+
+    private String export(String format) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/session/export").param("format", format))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(-1, started.getRequest().getAsyncContext().getTimeout());
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,208 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers a single session from hundreds of threads. Runs on its own database since bookings commit.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:capacity;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.hikari.maximum-pool-size=50"
+})
+public class SessionCapacityIT {
+    private static final int THREADS = 300;
+    private static final int CAPACITY = 50;
+
+    private enum Outcome { BOOKED, WAITLISTED, FULL, DUPLICATE, LEFT, FAILED }
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Session session;
+
+    private List<User> users;
+
+    @BeforeEach
+    public void setup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+
+        Teacher teacher = teacherRepository.save(new Teacher()
+                .setFirstName("Full").setLastName("Teacher")
+                .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()));
+        session = sessionRepository.save(new Session()
+                .setName("Popular").setDate(new Date()).setDescription("Always full")
+                .setTeacher(teacher).setCapacity(CAPACITY));
+
+        users = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            users.add(new User("capacity" + i + "@studio.com", "Capacity", "User", "password", false));
+        }
+        users = userRepository.saveAll(users);
+    }
+
+    @Test
+    public void testConcurrentBookingsNeverOverfillSession() throws Exception {
+        List<Outcome> outcomes = run(THREADS, i -> book(users.get(i).getId()));
+
+        assertEquals(CAPACITY, count(outcomes, Outcome.BOOKED));
+        assertEquals(THREADS - CAPACITY, count(outcomes, Outcome.FULL));
+        assertSeatsConsistent(CAPACITY);
+    }
+
+    @Test
+    public void testConcurrentDuplicatesBookOnce() throws Exception {
+        Long userId = users.get(0).getId();
+
+        List<Outcome> outcomes = run(THREADS, i -> book(userId));
+
+        assertEquals(1, count(outcomes, Outcome.BOOKED));
+        assertEquals(THREADS - 1, count(outcomes, Outcome.DUPLICATE));
+        assertSeatsConsistent(1);
+    }
+
+    @Test
+    public void testConcurrentCancellationsFreeSeats() throws Exception {
+        for (int i = 0; i < CAPACITY; i++) {
+            sessionService.participate(session.getId(), users.get(i).getId());
+        }
+
+        // Half the threads cancel a booking while the other half compete for the freed seats
+        List<Outcome> outcomes = run(2 * CAPACITY, i -> i < CAPACITY
+                ? leave(users.get(i).getId())
+                : book(users.get(i).getId()));
+
+        assertEquals(CAPACITY, count(outcomes, Outcome.LEFT));
+        assertEquals(0, count(outcomes, Outcome.FAILED));
+        assertSeatsConsistent(count(outcomes, Outcome.BOOKED));
+    }
+
+    @Test
+    public void testCancellationsPromoteWaitersInOrder() throws Exception {
+        for (int i = 0; i < CAPACITY; i++) {
+            sessionService.participate(session.getId(), users.get(i).getId());
+        }
+        List<Outcome> joined = run(2 * CAPACITY, i -> join(users.get(CAPACITY + i).getId()));
+        assertEquals(2 * CAPACITY, count(joined, Outcome.WAITLISTED));
+        List<Long> queue = sessionService.findWaitlist(session.getId());
+
+        List<Outcome> left = run(CAPACITY, i -> leave(users.get(i).getId()));
+
+        assertEquals(CAPACITY, count(left, Outcome.LEFT));
+        assertSeatsConsistent(CAPACITY);
+        assertEquals(queue.subList(CAPACITY, queue.size()), sessionService.findWaitlist(session.getId()));
+        List<Long> participants = jdbcTemplate.queryForList(
+                "select user_id from PARTICIPATE where session_id = ?", Long.class, session.getId());
+        assertTrue(participants.containsAll(queue.subList(0, CAPACITY)));
+    }
+
+    private interface Task {
+        Outcome run(int index);
+    }
+
+    private List<Outcome> run(int threads, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Outcome>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.run(index);
+            }));
+        }
+
+        start.countDown();
+        List<Outcome> outcomes = new ArrayList<>();
+        for (Future<Outcome> future : futures) {
+            outcomes.add(future.get(1, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+        return outcomes;
+    }
+
+    private Outcome book(Long userId) {
+        try {
+            sessionService.participate(session.getId(), userId);
+            return Outcome.BOOKED;
+        } catch (ConflictException e) {
+            return Outcome.FULL;
+        } catch (BadRequestException e) {
+            return Outcome.DUPLICATE;
+        } catch (RuntimeException e) {
+            return Outcome.FAILED;
+        }
+    }
+
+    private Outcome join(Long userId) {
+        try {
+            return sessionService.participateOrWait(session.getId(), userId) ? Outcome.BOOKED : Outcome.WAITLISTED;
+        } catch (RuntimeException e) {
+            return Outcome.FAILED;
+        }
+    }
+
+    private Outcome leave(Long userId) {
+        try {
+            sessionService.noLongerParticipate(session.getId(), userId);
+            return Outcome.LEFT;
+        } catch (RuntimeException e) {
+            return Outcome.FAILED;
+        }
+    }
+
+    private static int count(List<Outcome> outcomes, Outcome outcome) {
+        return (int) outcomes.stream().filter(outcome::equals).count();
+    }
+
+    private void assertSeatsConsistent(int expected) {
+        Integer rows = jdbcTemplate.queryForObject(
+                "select count(*) from PARTICIPATE where session_id = ?", Integer.class, session.getId());
+        assertEquals(expected, rows);
+        assertEquals(expected, sessionRepository.findById(session.getId()).get().getParticipantCount());
+    }
+}
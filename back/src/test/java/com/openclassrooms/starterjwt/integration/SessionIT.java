@@ -113,6 +113,115 @@ public class SessionIT {
         assertFalse(sessions.isEmpty(), "Sessions list should not be empty");
     }
 
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
+    public void testFindSessionPage() throws Exception {
+        Session second = new Session();
+        second.setName("Second Yoga Session");
+        second.setDate(new Date(testSession.getDate().getTime() + 3600000L));
+        second.setDescription("Later the same day");
+        second.setTeacher(testTeacher);
+        second.setUsers(new ArrayList<>());
+        sessionRepository.save(second);
+
+        MvcResult first = mockMvc.perform(get("/api/session/page").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(testSession.getId()))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn();
+
+        String cursor = objectMapper.readTree(first.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/session/page").param("size", "1").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(second.getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/session/page").param("teacherId", String.valueOf(testTeacher.getId() + 1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(0));
+    }
+
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
+    public void testFindUserSessions() throws Exception {
+        List<Session> later = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            Session session = new Session();
+            session.setName("Later Yoga Session " + i);
+            session.setDate(new Date(testSession.getDate().getTime() + i * 3600000L));
+            session.setDescription("Later the same day");
+            session.setTeacher(testTeacher);
+            session.setUsers(new ArrayList<>());
+            later.add(sessionRepository.save(session));
+        }
+        for (Session session : later) {
+            mockMvc.perform(post("/api/session/{id}/participate/{userId}", session.getId(), testUser.getId()))
+                    .andExpect(status().isOk());
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/user/{id}/sessions", testUser.getId()).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(later.get(0).getId()))
+                .andExpect(jsonPath("$.items[0].users[0]").value(testUser.getId()))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn();
+
+        String cursor = objectMapper.readTree(first.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/user/{id}/sessions", testUser.getId()).param("size", "1").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(later.get(1).getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/user/{id}/sessions", testUser.getId())
+                        .param("from", later.get(1).getDate().toInstant().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(later.get(1).getId()));
+
+        mockMvc.perform(get("/api/user/{id}/sessions", testUser.getId() + 1000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
+    public void testFindCompactSessionPage() throws Exception {
+        Session second = new Session();
+        second.setName("Second Yoga Session");
+        second.setDate(new Date(testSession.getDate().getTime() + 3600000L));
+        second.setDescription("Later the same day");
+        second.setTeacher(testTeacher);
+        second.setCapacity(10);
+        second.setUsers(new ArrayList<>());
+        sessionRepository.save(second);
+        User other = userRepository.save(new User("other@example.com", "Other", "User", "password", false));
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", second.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", second.getId(), other.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session/page").param("view", "compact"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(testSession.getId()))
+                .andExpect(jsonPath("$.items[0].participantCount").value(0))
+                .andExpect(jsonPath("$.items[0].callerParticipates").value(false))
+                .andExpect(jsonPath("$.items[0].users").doesNotExist())
+                .andExpect(jsonPath("$.items[1].participantCount").value(2))
+                .andExpect(jsonPath("$.items[1].capacity").value(10))
+                .andExpect(jsonPath("$.items[1].callerParticipates").value(true));
+
+        mockMvc.perform(get("/api/user/{id}/sessions", other.getId()).param("view", "compact"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].callerParticipates").value(true));
+
+        mockMvc.perform(get("/api/session/page").param("view", "tiny"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
     public void testFindSessionById() throws Exception {
@@ -170,6 +279,133 @@ public class SessionIT {
                 .andExpect(jsonPath("$.description").value("Updated during integration testing"));
     }
     
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
+    public void testCreateSessionWithUnknownIds() throws Exception {
+        SessionDto newSessionDto = new SessionDto();
+        newSessionDto.setName("Unknown references");
+        newSessionDto.setDescription("Rejected during integration testing");
+        newSessionDto.setDate(new Date());
+        newSessionDto.setTeacher_id(testTeacher.getId());
+        newSessionDto.setUsers(java.util.Arrays.asList(testUser.getId(), testUser.getId() + 1000));
+
+        mockMvc.perform(post("/api/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newSessionDto)))
+                .andExpect(status().isBadRequest());
+
+        newSessionDto.setUsers(java.util.Arrays.asList(testUser.getId(), testUser.getId()));
+        newSessionDto.setTeacher_id(testTeacher.getId() + 1000);
+
+        mockMvc.perform(post("/api/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newSessionDto)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
+    public void testConditionalGet() throws Exception {
+        String listEtag = mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+        String sessionEtag = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(listEtag);
+        assertNotNull(sessionEtag);
+
+        mockMvc.perform(get("/api/session").header("If-None-Match", listEtag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()).header("If-None-Match", sessionEtag))
+                .andExpect(status().isNotModified());
+
+        // Joining only writes the join table, yet both representations change
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session").header("If-None-Match", listEtag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", org.hamcrest.Matchers.not(listEtag)));
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()).header("If-None-Match", sessionEtag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0]").value(testUser.getId()));
+
+        String teacherEtag = mockMvc.perform(get("/api/teacher"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/teacher").header("If-None-Match", teacherEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
+    public void testConditionalUpdateKeepsBookings() throws Exception {
+        String etag = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // A booking lands between the read and the edit
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+
+        SessionDto edit = new SessionDto();
+        edit.setName("Edited Session");
+        edit.setDate(testSession.getDate());
+        edit.setTeacher_id(testTeacher.getId());
+        edit.setDescription("Edited without the participants");
+
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                .header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(edit)))
+                .andExpect(status().isPreconditionFailed());
+
+        String current = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+        String updated = mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                .header("If-Match", current)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(edit)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Edited Session"))
+                .andExpect(jsonPath("$.users[0]").value(testUser.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotNull(updated);
+        assertNotEquals(current, updated);
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()).header("If-None-Match", updated))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
+    public void testPatchSession() throws Exception {
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/api/session/{id}", testSession.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"description\":\"Patched\",\"capacity\":8}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.name").value("Test Yoga Session"))
+                .andExpect(jsonPath("$.description").value("Patched"))
+                .andExpect(jsonPath("$.capacity").value(8))
+                .andExpect(jsonPath("$.users[0]").value(testUser.getId()));
+
+        mockMvc.perform(patch("/api/session/{id}", testSession.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/session/{id}", testSession.getId())
+                .header("If-Match", "\"stale\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"description\":\"Lost\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     @WithMockUser(username = "session-test@example.com", roles = {"ADMIN"})
     public void testDeleteSession() throws Exception {
@@ -193,8 +429,13 @@ public class SessionIT {
         MvcResult participateResult = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.users[0]").value(testUser.getId()))
                 .andReturn();
         
+        // Participating twice is rejected
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isBadRequest());
+
         // Test unparticipation - notice the URL format matches the controller's annotation
         mockMvc.perform(delete("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
                 .andExpect(status().isOk());
@@ -202,6 +443,75 @@ public class SessionIT {
         // Verify unparticipation
         MvcResult result = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
                 .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(0))
                 .andReturn();
+
+        // Leaving twice is rejected, unknown session or user is not found
+        mockMvc.perform(delete("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId() + 1000, testUser.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId() + 1000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"USER"})
+    public void testParticipateInFullSession() throws Exception {
+        testSession.setCapacity(1);
+        sessionRepository.saveAndFlush(testSession);
+        User other = userRepository.save(new User("other@example.com", "Other", "User", "password", false));
+
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), other.getId()))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.capacity").value(1))
+                .andExpect(jsonPath("$.users.length()").value(1));
+
+        // Leaving frees the seat
+        mockMvc.perform(delete("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), other.getId()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(username = "session-test@example.com", roles = {"USER"})
+    public void testWaitlistPromotion() throws Exception {
+        testSession.setCapacity(1);
+        sessionRepository.saveAndFlush(testSession);
+        User other = userRepository.save(new User("waiter@example.com", "Wait", "User", "password", false));
+
+        mockMvc.perform(post("/api/session/{id}/waitlist/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Booked"));
+        mockMvc.perform(post("/api/session/{id}/waitlist/{userId}", testSession.getId(), other.getId()))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.message").value("Waitlisted"));
+        mockMvc.perform(post("/api/session/{id}/waitlist/{userId}", testSession.getId(), other.getId()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/session/{id}/waitlist", testSession.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value(other.getId()));
+
+        // The seat goes to the waiter as part of the cancellation
+        mockMvc.perform(delete("/api/session/{id}/participate/{userId}", testSession.getId(), testUser.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0]").value(other.getId()));
+        mockMvc.perform(get("/api/session/{id}/waitlist", testSession.getId()))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(delete("/api/session/{id}/waitlist/{userId}", testSession.getId(), other.getId()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/session/{id}/waitlist", testSession.getId() + 1000))
+                .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+}
@@ -4,11 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.services.TeacherService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -36,6 +38,12 @@ public class TeacherIT {
     @Autowired
     private TeacherRepository teacherRepository;
 
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     private Teacher testTeacher;
 
     @BeforeEach
@@ -49,6 +57,7 @@ public class TeacherIT {
         testTeacher.setCreatedAt(LocalDateTime.now());
         testTeacher.setUpdatedAt(LocalDateTime.now());
         teacherRepository.save(testTeacher);
+        teacherService.evictAll();
     }
 
     @Test
@@ -86,4 +95,51 @@ public class TeacherIT {
         mockMvc.perform(get("/api/teacher/9999"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTeacherReadsAreCachedAndEvictedOnWrite() {
+        Teacher first = teacherService.findById(testTeacher.getId());
+        assertSame(first, teacherService.findById(testTeacher.getId()));
+        assertNotNull(cacheManager.getCache(TeacherService.CACHE).get(testTeacher.getId()));
+
+        List<Teacher> all = teacherService.findAll();
+        assertSame(all, teacherService.findAll());
+
+        testTeacher.setLastName("Renamed");
+        teacherService.save(testTeacher);
+
+        assertNull(cacheManager.getCache(TeacherService.CACHE).get(testTeacher.getId()));
+        assertEquals("Renamed", teacherService.findById(testTeacher.getId()).getLastName());
+        assertNotSame(all, teacherService.findAll());
+    }
+
+    @Test
+    public void testDeleteEvictsTeacher() {
+        teacherService.findById(testTeacher.getId());
+        List<Teacher> all = teacherService.findAll();
+
+        teacherService.delete(testTeacher.getId());
+
+        assertNull(cacheManager.getCache(TeacherService.CACHE).get(testTeacher.getId()));
+        assertNull(teacherService.findById(testTeacher.getId()));
+        assertTrue(teacherService.findAll().isEmpty());
+        assertFalse(all.isEmpty());
+    }
+
+    @Test
+    public void testUnknownTeacherIsNotCached() {
+        assertNull(teacherService.findById(9999L));
+        assertNull(cacheManager.getCache(TeacherService.CACHE).get(9999L));
+    }
+
+    @Test
+    public void testExplicitEviction() {
+        teacherService.findById(testTeacher.getId());
+        teacherService.findAll();
+
+        teacherService.evictAll();
+
+        assertNull(cacheManager.getCache(TeacherService.CACHE).get(testTeacher.getId()));
+        assertNull(cacheManager.getCache(TeacherService.LIST_CACHE).get("all"));
+    }
+}
@@ -0,0 +1,192 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.UserPurgeDto;
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Purges commit chunk by chunk on another thread, so this runs on its own database without a test transaction.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:userdeletion;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "oc.app.purge.chunkSize=100"
+})
+@AutoConfigureMockMvc
+public class UserDeletionIT {
+    private static final int USERS = 1050;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Session open;
+
+    private Session full;
+
+    @BeforeEach
+    public void setup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+
+        Teacher teacher = teacherRepository.save(new Teacher()
+                .setFirstName("Purge").setLastName("Teacher")
+                .setCreatedAt(LocalDateTime.now()).setUpdatedAt(LocalDateTime.now()));
+        open = sessionRepository.save(new Session()
+                .setName("Open").setDate(new Date()).setDescription("Anyone").setTeacher(teacher));
+        full = sessionRepository.save(new Session()
+                .setName("Full").setDate(new Date()).setDescription("One seat").setTeacher(teacher).setCapacity(1));
+    }
+
+    @Test
+    public void testDeleteParticipatingUser() {
+        User leaving = userRepository.save(new User("leaving@studio.com", "Leaving", "User", "password", false));
+        User waiting = userRepository.save(new User("waiting@studio.com", "Waiting", "User", "password", false));
+        sessionService.participate(open.getId(), leaving.getId());
+        sessionService.participate(full.getId(), leaving.getId());
+        assertFalse(sessionService.participateOrWait(full.getId(), waiting.getId()));
+
+        userService.delete(leaving.getId(), leaving.getEmail());
+
+        assertFalse(userRepository.existsById(leaving.getId()));
+        assertEquals(0, sessionRepository.findById(open.getId()).get().getParticipantCount());
+        assertEquals(Collections.singletonList(waiting.getId()), participantIds(full));
+        assertEquals(1, sessionRepository.findById(full.getId()).get().getParticipantCount());
+        assertTrue(sessionService.findWaitlist(full.getId()).isEmpty());
+    }
+
+    @Test
+    public void testDeleteOtherUserKeepsBookings() {
+        User owner = userRepository.save(new User("owner@studio.com", "Owner", "User", "password", false));
+        User waiting = userRepository.save(new User("waiting@studio.com", "Waiting", "User", "password", false));
+        sessionService.participate(full.getId(), owner.getId());
+        assertFalse(sessionService.participateOrWait(full.getId(), waiting.getId()));
+        Long version = sessionRepository.findVersionById(full.getId()).get();
+
+        assertThrows(UnauthorizedException.class, () -> userService.delete(owner.getId(), waiting.getEmail()));
+
+        assertEquals(Collections.singletonList(owner.getId()), participantIds(full));
+        assertEquals(Collections.singletonList(waiting.getId()), sessionService.findWaitlist(full.getId()));
+        assertEquals(version, sessionRepository.findVersionById(full.getId()).get());
+    }
+
+    @Test
+    public void testPurgeInChunks() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("purge" + i + "@studio.com", "Purge", "User", "password", false));
+        }
+        users = userRepository.saveAll(users);
+        List<Object[]> participations = users.stream()
+                .map(user -> new Object[] {open.getId(), user.getId()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("insert into PARTICIPATE (session_id, user_id) values (?, ?)", participations);
+        sessionRepository.syncParticipantCount(open.getId());
+        User kept = users.get(USERS - 1);
+        List<Long> purged = users.subList(0, USERS - 1).stream().map(User::getId).collect(Collectors.toList());
+        User admin = userRepository.save(new User("purge-admin@studio.com", "Purge", "Admin", "password", true));
+
+        String location = mockMvc.perform(post("/api/user/purge")
+                        .with(user(new UserDetailsImpl(admin.getId(), admin.getEmail(), "Purge", "Admin", true, null)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(purged)))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+
+        UserPurgeDto purge = awaitDone(location, admin);
+        assertEquals(USERS - 1, purge.getDeleted());
+        assertEquals(0, purge.getFailed());
+        assertEquals(2, userRepository.count());
+        assertEquals(Collections.singletonList(kept.getId()), participantIds(open));
+        assertEquals(1, sessionRepository.findById(open.getId()).get().getParticipantCount());
+    }
+
+    @Test
+    public void testPurgeRequiresAdmin() throws Exception {
+        User user = userRepository.save(new User("purge-user@studio.com", "Purge", "User", "password", false));
+
+        mockMvc.perform(post("/api/user/purge")
+                        .with(user(new UserDetailsImpl(user.getId(), user.getEmail(), "Purge", "User", false, null)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + user.getId() + "]"))
+                .andExpect(status().isUnauthorized());
+
+        assertTrue(userRepository.existsById(user.getId()));
+    }
+
+    private UserPurgeDto awaitDone(String location, User admin) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        UserPurgeDto purge;
+        do {
+            Thread.sleep(50);
+            String body = mockMvc.perform(get(location)
+                            .with(user(new UserDetailsImpl(admin.getId(), admin.getEmail(), "Purge", "Admin", true, null))))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            purge = objectMapper.readValue(body, UserPurgeDto.class);
+        } while (purge.getStatus() != UserPurgeDto.Status.DONE && System.nanoTime() < deadline);
+        assertEquals(UserPurgeDto.Status.DONE, purge.getStatus());
+        return purge;
+    }
+
+    private List<Long> participantIds(Session session) {
+        return jdbcTemplate.queryForList(
+                "select user_id from PARTICIPATE where session_id = ?", Long.class, session.getId());
+    }
+}
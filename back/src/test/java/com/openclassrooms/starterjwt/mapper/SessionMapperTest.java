@@ -1,9 +1,13 @@
 package com.openclassrooms.starterjwt.mapper;
 
+import com.openclassrooms.starterjwt.dto.SessionCompactDto;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPatchDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,14 +16,21 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -81,9 +92,11 @@ public class SessionMapperTest {
         sessionDto.setUsers(Arrays.asList(1L, 2L));
         
         // Configure mocks
-        when(teacherService.findById(eq(2L))).thenReturn(teacher);
-        when(userService.findById(eq(1L))).thenReturn(user1);
-        when(userService.findById(eq(2L))).thenReturn(user2);
+        when(teacherService.getReference(eq(2L))).thenReturn(teacher);
+        when(userService.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return Stream.of(user2, user1).filter(user -> ids.contains(user.getId())).collect(Collectors.toList());
+        });
     }
 
     @Test
@@ -100,15 +113,16 @@ public class SessionMapperTest {
         // Verify teacher mapping
         assertNotNull(entity.getTeacher());
         assertEquals(teacher.getId(), entity.getTeacher().getId());
-        verify(teacherService, times(1)).findById(sessionDto.getTeacher_id());
+        verify(teacherService, times(1)).getReference(sessionDto.getTeacher_id());
+        verify(teacherService, never()).findById(anyLong());
         
         // Verify users mapping
         assertNotNull(entity.getUsers());
         assertEquals(2, entity.getUsers().size());
         assertEquals(user1.getId(), entity.getUsers().get(0).getId());
         assertEquals(user2.getId(), entity.getUsers().get(1).getId());
-        verify(userService, times(1)).findById(1L);
-        verify(userService, times(1)).findById(2L);
+        verify(userService, times(1)).findAllById(anyCollection());
+        verify(userService, never()).findById(anyLong());
     }
     
     @Test
@@ -140,7 +154,7 @@ public class SessionMapperTest {
         
         assertNotNull(entity);
         assertNull(entity.getTeacher());
-        verify(teacherService, times(0)).findById(anyLong());
+        verify(teacherService, times(0)).getReference(anyLong());
     }
 
     @Test
@@ -269,17 +283,29 @@ public class SessionMapperTest {
     public void testToEntity_UserNotFound() {
         // Setup a scenario where one user is not found
         sessionDto.setUsers(Arrays.asList(1L, 3L)); // User with ID 3 doesn't exist
-        when(userService.findById(3L)).thenReturn(null);
-        
+
+        assertThrows(BadRequestException.class, () -> mapper.toEntity(sessionDto));
+    }
+
+    @Test
+    public void testToEntity_DuplicateUserIds() {
+        sessionDto.setUsers(Arrays.asList(1L, 2L, 1L));
+
         Session entity = mapper.toEntity(sessionDto);
-        
-        assertNotNull(entity);
-        assertNotNull(entity.getUsers());
-        assertEquals(2, entity.getUsers().size()); 
-        assertEquals(user1.getId(), entity.getUsers().get(0).getId());
-        assertNull(entity.getUsers().get(1)); // The second element should be null
+
+        assertEquals(Arrays.asList(user1, user2), entity.getUsers());
+        verify(userService, times(1)).findAllById(eq(new LinkedHashSet<>(Arrays.asList(1L, 2L))));
     }
-    
+
+    @Test
+    public void testToEntity_EmptyUsersListSkipsQuery() {
+        sessionDto.setUsers(Collections.emptyList());
+
+        mapper.toEntity(sessionDto);
+
+        verify(userService, never()).findAllById(anyCollection());
+    }
+
     @Test
     public void testToEntity_MixedTeacherAndUserCase() {
         // Test with null teacher and some users
@@ -309,4 +335,86 @@ public class SessionMapperTest {
         assertEquals(1, dto.getUsers().size());
         assertEquals(user1.getId(), dto.getUsers().get(0));
     }
+
+    @Test
+    public void testToDto_FromSummary() {
+        SessionSummary summary = summary(3L, 2L);
+
+        SessionDto dto = mapper.toDto(summary, Arrays.asList(1L, 2L));
+
+        assertEquals(3L, dto.getId());
+        assertEquals("Summary", dto.getName());
+        assertEquals(2L, dto.getTeacher_id());
+        assertEquals(Arrays.asList(1L, 2L), dto.getUsers());
+    }
+
+    @Test
+    public void testToDto_FromSummariesWithParticipants() {
+        Map<Long, List<Long>> participants = Collections.singletonMap(3L, Arrays.asList(1L));
+
+        List<SessionDto> dtos = mapper.toDto(Arrays.asList(summary(3L, 2L), summary(4L, null)), participants);
+
+        assertEquals(2, dtos.size());
+        assertEquals(Arrays.asList(1L), dtos.get(0).getUsers());
+        assertTrue(dtos.get(1).getUsers().isEmpty());
+        assertNull(dtos.get(1).getTeacher_id());
+    }
+
+    @Test
+    public void testToCompactDto_FromSummaries() {
+        SessionSummary full = summary(3L, 2L);
+        when(full.getCapacity()).thenReturn(10);
+        when(full.getParticipantCount()).thenReturn(10);
+
+        List<SessionCompactDto> dtos = mapper.toCompactDto(Arrays.asList(full, summary(4L, null)), Collections.singleton(3L));
+
+        assertEquals(2, dtos.size());
+        assertEquals(3L, dtos.get(0).getId());
+        assertEquals("Summary", dtos.get(0).getName());
+        assertEquals(2L, dtos.get(0).getTeacher_id());
+        assertEquals(10, dtos.get(0).getCapacity());
+        assertEquals(10, dtos.get(0).getParticipantCount());
+        assertTrue(dtos.get(0).isCallerParticipates());
+        assertFalse(dtos.get(1).isCallerParticipates());
+        assertEquals(0, dtos.get(1).getParticipantCount());
+    }
+
+    private static SessionSummary summary(Long id, Long teacherId) {
+        SessionSummary summary = mock(SessionSummary.class);
+        when(summary.getId()).thenReturn(id);
+        when(summary.getName()).thenReturn("Summary");
+        when(summary.getTeacherId()).thenReturn(teacherId);
+        return summary;
+    }
+
+    @Test
+    public void testPatchCopiesPresentFieldsOnly() {
+        List<User> participants = session.getUsers();
+        String description = session.getDescription();
+        SessionPatchDto patch = new SessionPatchDto();
+        patch.setName("Patched");
+        patch.setCapacity(8);
+
+        mapper.patch(patch, session);
+
+        assertEquals("Patched", session.getName());
+        assertEquals(8, session.getCapacity());
+        assertEquals(description, session.getDescription());
+        assertSame(teacher, session.getTeacher());
+        assertSame(participants, session.getUsers());
+        verify(teacherService, never()).getReference(anyLong());
+    }
+
+    @Test
+    public void testPatchChangesTeacher() {
+        Teacher other = new Teacher();
+        other.setId(3L);
+        when(teacherService.getReference(3L)).thenReturn(other);
+        SessionPatchDto patch = new SessionPatchDto();
+        patch.setTeacher_id(3L);
+
+        mapper.patch(patch, session);
+
+        assertSame(other, session.getTeacher());
+    }
 }
@@ -0,0 +1,59 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServiceMetricsAspectTest {
+    private SimpleMeterRegistry registry;
+    private SampleService service;
+
+    @Service
+    public static class SampleService {
+        public String greet(String name) {
+            return "Hello " + name;
+        }
+
+        public void fail() {
+            throw new IllegalStateException("boom");
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new SampleService());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ServiceMetricsAspect(registry));
+        service = factory.getProxy();
+    }
+
+    @Test
+    public void testRecordsSuccessPerMethod() {
+        assertEquals("Hello Ada", service.greet("Ada"));
+        service.greet("Bob");
+
+        Timer timer = registry.get(ServiceMetricsAspect.METRIC)
+                .tag("class", "SampleService")
+                .tag("method", "greet")
+                .tag("outcome", "success")
+                .timer();
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    public void testRecordsErrors() {
+        assertThrows(IllegalStateException.class, () -> service.fail());
+
+        Timer timer = registry.get(ServiceMetricsAspect.METRIC)
+                .tag("method", "fail")
+                .tag("outcome", "error")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+}
@@ -99,7 +99,7 @@ public class SessionTest {
         
         Session session = new Session(
                 1L, "Yoga Session", sessionDate, "Description", 
-                teacher, users, now, now);
+                teacher, users, now, now, 0L, 12, 0);
         
         assertEquals(1L, session.getId());
         assertEquals("Yoga Session", session.getName());
@@ -109,6 +109,7 @@ public class SessionTest {
         assertEquals(users, session.getUsers());
         assertEquals(now, session.getCreatedAt());
         assertEquals(now, session.getUpdatedAt());
+        assertEquals(0L, session.getVersion());
     }
     
     @Test
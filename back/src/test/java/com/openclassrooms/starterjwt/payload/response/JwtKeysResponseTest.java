@@ -0,0 +1,18 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+public class JwtKeysResponseTest {
+
+    @Test
+    public void testConstructor() {
+        JwtKeysResponse response = new JwtKeysResponse("k2", Collections.singleton("k2"));
+
+        assertEquals("k2", response.getActiveKeyId());
+        assertEquals(Collections.singleton("k2"), response.getKeyIds());
+    }
+}
@@ -0,0 +1,121 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.config.SecondLevelCacheConfig;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The participants reach the second-level cache on commit, so the transactions are the test's own.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(SecondLevelCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SessionRepositoryTest {
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    private Session session;
+
+    @BeforeEach
+    public void setup() {
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = userRepository.save(new User("locked@studio.com", "Locked", "User", "password", false));
+        session = sessionRepository.save(new Session()
+                .setName("Locked").setDate(new Date()).setDescription("Cached participants")
+                .setUsers(Collections.singletonList(user)));
+
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void testParticipantsAreReadOnce() {
+        countParticipants();
+        countParticipants();
+
+        assertEquals(1, statistics.getCollectionLoadCount());
+    }
+
+    @Test
+    public void testLockedParticipantsAreReadFromDatabase() {
+        countParticipants();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            sessionRepository.lockCachedParticipants(session.getId());
+
+            TransactionTemplate other = new TransactionTemplate(transactionManager);
+            other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            assertEquals(Integer.valueOf(1), other.execute(s -> participantCount()));
+            assertEquals(2, statistics.getCollectionLoadCount());
+            return null;
+        });
+    }
+
+    @Test
+    public void testParticipantsAreCachedAgainOnceReleased() {
+        User other = userRepository.save(new User("other@studio.com", "Other", "User", "password", false));
+        countParticipants();
+
+        // As a booking does: the seat taken bumps the version of the session, which the released lock waits for
+        new TransactionTemplate(transactionManager).execute(status -> {
+            sessionRepository.reserveSeat(session.getId());
+            sessionRepository.lockCachedParticipants(session.getId());
+            return sessionRepository.addParticipant(session.getId(), other.getId());
+        });
+
+        assertEquals(2, countParticipants());
+        assertEquals(2, countParticipants());
+        assertEquals(2, statistics.getCollectionLoadCount());
+    }
+
+    @Test
+    public void testLockingUnknownSessionIsHarmless() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            sessionRepository.lockCachedParticipants(Long.MAX_VALUE);
+            return null;
+        });
+
+        assertEquals(1, countParticipants());
+    }
+
+    private int countParticipants() {
+        return new TransactionTemplate(transactionManager).execute(status -> participantCount());
+    }
+
+    private int participantCount() {
+        return sessionRepository.findById(session.getId()).get().getUsers().size();
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.security;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BoundedPasswordEncoderTest {
+
+    @Test
+    public void testDelegatesOnHashingThreads() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 10);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("other", hash));
+        assertFalse(encoder.upgradeEncoding(hash));
+    }
+
+    @Test
+    public void testRefusesHashingBeyondQueue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = mock(PasswordEncoder.class);
+        when(slow.encode(any())).thenAnswer(invocation -> {
+            release.await();
+            return "hash";
+        });
+        // One hash running and one queued, the others refused
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 1, 1);
+        ExecutorService callers = Executors.newFixedThreadPool(5);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(callers.submit(() -> encoder.encode("secret")));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (results.stream().filter(Future::isDone).count() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        int hashed = 0, refused = 0;
+        for (Future<String> result : results) {
+            try {
+                assertEquals("hash", result.get(5, TimeUnit.SECONDS));
+                hashed++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ServiceUnavailableException);
+                refused++;
+            }
+        }
+        callers.shutdown();
+        assertEquals(2, hashed);
+        assertEquals(3, refused);
+    }
+
+    @Test
+    public void testPropagatesDelegateFailures() {
+        PasswordEncoder failing = mock(PasswordEncoder.class);
+        when(failing.matches(any(), any())).thenThrow(new IllegalArgumentException("bad hash"));
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(failing, 1, 1);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> encoder.matches("a", "b"));
+        assertEquals("bad hash", e.getMessage());
+    }
+}
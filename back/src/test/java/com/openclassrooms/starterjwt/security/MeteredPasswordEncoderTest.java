@@ -0,0 +1,30 @@
+package com.openclassrooms.starterjwt.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MeteredPasswordEncoderTest {
+    @Test
+    public void testDelegatesAndRecordsTimings() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeteredPasswordEncoder encoder = new MeteredPasswordEncoder(new BCryptPasswordEncoder(4));
+        encoder.bindTo(registry);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("other", hash));
+        assertEquals(1, registry.get("security.password").tag("operation", "encode").timer().count());
+        assertEquals(2, registry.get("security.password").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    public void testWorksBeforeBinding() {
+        MeteredPasswordEncoder encoder = new MeteredPasswordEncoder(new BCryptPasswordEncoder(4));
+
+        assertTrue(encoder.matches("secret", encoder.encode("secret")));
+    }
+}
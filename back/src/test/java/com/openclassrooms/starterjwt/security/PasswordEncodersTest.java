@@ -0,0 +1,49 @@
+package com.openclassrooms.starterjwt.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordEncodersTest {
+
+    @Test
+    public void testNewHashesArePrefixed() {
+        PasswordEncoder encoder = PasswordEncoders.create("bcrypt", 4);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(hash.startsWith("{bcrypt}$2a$04$"));
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.upgradeEncoding(hash));
+    }
+
+    @Test
+    public void testLegacyHashesMatchAndNeedUpgrade() {
+        PasswordEncoder encoder = PasswordEncoders.create("bcrypt", 4);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertFalse(encoder.matches("other", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    public void testWeakerOrOtherHashesNeedUpgrade() {
+        String weak = PasswordEncoders.create("bcrypt", 4).encode("secret");
+        PasswordEncoder stronger = PasswordEncoders.create("bcrypt", 5);
+        PasswordEncoder pbkdf2 = PasswordEncoders.create(" PBKDF2 ", 4);
+
+        assertTrue(stronger.matches("secret", weak));
+        assertTrue(stronger.upgradeEncoding(weak));
+        assertTrue(pbkdf2.matches("secret", weak));
+        assertTrue(pbkdf2.upgradeEncoding(weak));
+        assertTrue(pbkdf2.encode("secret").startsWith("{pbkdf2}"));
+    }
+
+    @Test
+    public void testUnknownAlgorithmIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PasswordEncoders.create("md5", 10));
+    }
+}
@@ -2,6 +2,8 @@ package com.openclassrooms.starterjwt.security.jwt;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -19,8 +21,10 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Date;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -35,6 +39,12 @@ public class AuthTokenFilterTest {
     @Mock
     private UserDetailsServiceImpl userDetailsService;
 
+    @Mock
+    private TokenAuthenticationCache authenticationCache;
+
+    @Mock
+    private TokenRevocationList revocationList;
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -49,9 +59,10 @@ public class AuthTokenFilterTest {
         FilterChain filterChain = new MockFilterChain();
 
         UserDetailsImpl userDetails = new UserDetailsImpl(1L, "test@example.com", "John", "Doe", false, "password");
-        
-        when(jwtUtils.validateJwtToken("valid_test_token")).thenReturn(true);
-        when(jwtUtils.getUserNameFromJwtToken("valid_test_token")).thenReturn("test@example.com");
+        Date expiration = new Date(System.currentTimeMillis() + 60000);
+        Claims claims = Jwts.claims().setSubject("test@example.com").setExpiration(expiration);
+
+        when(jwtUtils.getValidatedClaims("valid_test_token")).thenReturn(claims);
         when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(userDetails);
 
         authTokenFilter.doFilterInternal(request, response, filterChain);
@@ -60,9 +71,88 @@ public class AuthTokenFilterTest {
         assertNotNull(authentication);
         assertEquals(userDetails, authentication.getPrincipal());
         
-        verify(jwtUtils).validateJwtToken("valid_test_token");
-        verify(jwtUtils).getUserNameFromJwtToken("valid_test_token");
+        verify(jwtUtils).getValidatedClaims("valid_test_token");
+        verify(jwtUtils, never()).getUserNameFromJwtToken(anyString());
         verify(userDetailsService).loadUserByUsername("test@example.com");
+        verify(authenticationCache).put("valid_test_token", userDetails, claims.getExpiration());
+    }
+
+    @Test
+    public void testDoFilterInternal_withCachedJwt() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer cached_token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain filterChain = new MockFilterChain();
+
+        UserDetailsImpl userDetails = new UserDetailsImpl(1L, "test@example.com", "John", "Doe", false, "password");
+        when(authenticationCache.get("cached_token")).thenReturn(userDetails);
+
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals(userDetails, authentication.getPrincipal());
+
+        verify(jwtUtils, never()).getValidatedClaims(anyString());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    public void testDoFilterInternal_statelessBuildsPrincipalFromClaims() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer stateless_token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        UserDetailsImpl fromClaims = new UserDetailsImpl(1L, "test@example.com", "John", "Doe", true, null);
+        Claims claims = Jwts.claims().setSubject("test@example.com");
+        when(jwtUtils.getValidatedClaims("stateless_token")).thenReturn(claims);
+        when(jwtUtils.isStateless()).thenReturn(true);
+        when(jwtUtils.getUserDetailsFromClaims(claims)).thenReturn(fromClaims);
+
+        authTokenFilter.doFilterInternal(request, response, new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertSame(fromClaims, authentication.getPrincipal());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        verify(authenticationCache).put("stateless_token", fromClaims, null);
+    }
+
+    @Test
+    public void testDoFilterInternal_statelessRevokedToken() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer revoked_token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        UserDetailsImpl fromClaims = new UserDetailsImpl(1L, "test@example.com", "John", "Doe", false, null);
+        Claims claims = Jwts.claims().setSubject("test@example.com");
+        when(jwtUtils.getValidatedClaims("revoked_token")).thenReturn(claims);
+        when(jwtUtils.isStateless()).thenReturn(true);
+        when(jwtUtils.getUserDetailsFromClaims(claims)).thenReturn(fromClaims);
+        when(revocationList.isRevoked(1L, claims)).thenReturn(true);
+
+        authTokenFilter.doFilterInternal(request, response, new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(authenticationCache, never()).put(anyString(), any(), any());
+    }
+
+    @Test
+    public void testDoFilterInternal_statelessFallsBackForLegacyToken() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer legacy_token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        UserDetailsImpl userDetails = new UserDetailsImpl(1L, "test@example.com", "John", "Doe", false, "password");
+        Claims claims = Jwts.claims().setSubject("test@example.com");
+        when(jwtUtils.getValidatedClaims("legacy_token")).thenReturn(claims);
+        when(jwtUtils.isStateless()).thenReturn(true);
+        when(jwtUtils.getUserDetailsFromClaims(claims)).thenReturn(null);
+        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(userDetails);
+
+        authTokenFilter.doFilterInternal(request, response, new MockFilterChain());
+
+        assertSame(userDetails, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
     }
 
     @Test
@@ -72,16 +162,16 @@ public class AuthTokenFilterTest {
         MockHttpServletResponse response = new MockHttpServletResponse();
         FilterChain filterChain = new MockFilterChain();
 
-        when(jwtUtils.validateJwtToken("invalid_test_token")).thenReturn(false);
+        when(jwtUtils.getValidatedClaims("invalid_test_token")).thenReturn(null);
 
         authTokenFilter.doFilterInternal(request, response, filterChain);
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         assertNull(authentication); // Authentication should not be set
 
-        verify(jwtUtils).validateJwtToken("invalid_test_token");
-        verify(jwtUtils, never()).getUserNameFromJwtToken(anyString());
+        verify(jwtUtils).getValidatedClaims("invalid_test_token");
         verify(userDetailsService, never()).loadUserByUsername(anyString());
+        verify(authenticationCache, never()).put(anyString(), any(), any());
     }
 
     @Test
@@ -95,8 +185,8 @@ public class AuthTokenFilterTest {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         assertNull(authentication); // Authentication should not be set
 
-        verify(jwtUtils, never()).validateJwtToken(anyString());
-        verify(jwtUtils, never()).getUserNameFromJwtToken(anyString());
+        verify(authenticationCache, never()).get(anyString());
+        verify(jwtUtils, never()).getValidatedClaims(anyString());
         verify(userDetailsService, never()).loadUserByUsername(anyString());
     }
 
@@ -112,8 +202,7 @@ public class AuthTokenFilterTest {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         assertNull(authentication); // Authentication should not be set
 
-        verify(jwtUtils, never()).validateJwtToken(anyString());
-        verify(jwtUtils, never()).getUserNameFromJwtToken(anyString());
+        verify(jwtUtils, never()).getValidatedClaims(anyString());
         verify(userDetailsService, never()).loadUserByUsername(anyString());
     }
 
@@ -124,17 +213,16 @@ public class AuthTokenFilterTest {
         MockHttpServletResponse response = new MockHttpServletResponse();
         FilterChain filterChain = new MockFilterChain();
 
-        when(jwtUtils.validateJwtToken("token_causing_exception")).thenReturn(true);
-        when(jwtUtils.getUserNameFromJwtToken("token_causing_exception")).thenThrow(new RuntimeException("Test exception"));
+        when(jwtUtils.getValidatedClaims("token_causing_exception")).thenReturn(Jwts.claims().setSubject("gone@example.com"));
+        when(userDetailsService.loadUserByUsername("gone@example.com")).thenThrow(new RuntimeException("Test exception"));
 
         authTokenFilter.doFilterInternal(request, response, filterChain);
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         assertNull(authentication); // Authentication should not be set due to exception
 
-        verify(jwtUtils).validateJwtToken("token_causing_exception");
-        verify(jwtUtils).getUserNameFromJwtToken("token_causing_exception");
-        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        verify(jwtUtils).getValidatedClaims("token_causing_exception");
+        verify(authenticationCache, never()).put(anyString(), any(), any());
     }
 
     @Test
@@ -1,5 +1,7 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,7 +9,9 @@ import org.mockito.Mockito;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.TreeSet;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class JwtUtilsTest {
@@ -20,6 +24,13 @@ public class JwtUtilsTest {
         jwtUtils = new JwtUtils();
         org.springframework.test.util.ReflectionTestUtils.setField(jwtUtils, "jwtSecret", jwtSecret);
         org.springframework.test.util.ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", jwtExpirationMs);
+        org.springframework.test.util.ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "k1");
+        jwtUtils.init();
+    }
+
+    private String generateToken(Long id, String email) {
+        UserDetailsImpl userDetails = new UserDetailsImpl(id, email, "John", "Doe", false, "password");
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null, null));
     }
 
     @Test
@@ -102,4 +113,150 @@ public class JwtUtilsTest {
         String emptyToken = "";
         assertFalse(jwtUtils.validateJwtToken(emptyToken));
     }
+
+    @Test
+    public void testGetValidatedClaims() {
+        UserDetailsImpl userDetails = new UserDetailsImpl(
+            1L,
+            "claims@email.com",
+            "John",
+            "Doe",
+            false,
+            "password"
+        );
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null, null));
+
+        Claims claims = jwtUtils.getValidatedClaims(token);
+
+        assertNotNull(claims);
+        assertEquals("claims@email.com", claims.getSubject());
+        assertNotNull(claims.getExpiration());
+    }
+
+    @Test
+    public void testGetValidatedClaims_invalidToken() {
+        assertNull(jwtUtils.getValidatedClaims("invalid.token.value"));
+        assertNull(jwtUtils.getValidatedClaims(null));
+    }
+
+    @Test
+    public void testGeneratedTokenCarriesPrincipalClaims() {
+        UserDetailsImpl userDetails = new UserDetailsImpl(
+            7L,
+            "admin@email.com",
+            "Ada",
+            "Admin",
+            true,
+            "password"
+        );
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null, null));
+
+        UserDetailsImpl fromClaims = jwtUtils.getUserDetailsFromClaims(jwtUtils.getValidatedClaims(token));
+
+        assertEquals(7L, fromClaims.getId());
+        assertEquals("admin@email.com", fromClaims.getUsername());
+        assertEquals("Ada", fromClaims.getFirstName());
+        assertEquals("Admin", fromClaims.getLastName());
+        assertTrue(fromClaims.getAdmin());
+        assertNull(fromClaims.getPassword());
+    }
+
+    @Test
+    public void testGetUserDetailsFromClaims_withoutIdentityClaims() {
+        assertNull(jwtUtils.getUserDetailsFromClaims(Jwts.claims().setSubject("legacy@email.com")));
+    }
+
+    @Test
+    public void testStatelessModeUsesShortExpiration() {
+        org.springframework.test.util.ReflectionTestUtils.setField(jwtUtils, "statelessExpirationMs", 1000);
+        assertFalse(jwtUtils.isStateless());
+        assertEquals(jwtExpirationMs, jwtUtils.getExpirationMs());
+
+        org.springframework.test.util.ReflectionTestUtils.setField(jwtUtils, "stateless", true);
+
+        assertTrue(jwtUtils.isStateless());
+        assertEquals(1000, jwtUtils.getExpirationMs());
+    }
+
+    @Test
+    public void testValidate_reportsFailureReason() {
+        assertTrue(jwtUtils.validate(generateToken(1L, "user@email.com")).isValid());
+        assertEquals(JwtValidationResult.Failure.MALFORMED, jwtUtils.validate("malformed.token").getFailure());
+        assertEquals(JwtValidationResult.Failure.EMPTY, jwtUtils.validate("").getFailure());
+
+        String foreign = Jwts.builder().setSubject("user@email.com")
+            .signWith(SignatureAlgorithm.HS512, "b3RoZXJTZWNyZXQ=").compact();
+        JwtValidationResult result = jwtUtils.validate(foreign);
+        assertFalse(result.isValid());
+        assertNull(result.getClaims());
+        assertEquals(JwtValidationResult.Failure.INVALID_SIGNATURE, result.getFailure());
+    }
+
+    @Test
+    public void testTokensWithoutKeyIdAreVerifiedWithConfiguredSecret() {
+        String legacy = Jwts.builder().setSubject("legacy@email.com")
+            .signWith(SignatureAlgorithm.HS512, jwtSecret).compact();
+
+        assertEquals("legacy@email.com", jwtUtils.getValidatedClaims(legacy).getSubject());
+    }
+
+    @Test
+    public void testRotatedKeyKeepsVerifyingPreviousTokens() {
+        String before = generateToken(1L, "before@email.com");
+
+        jwtUtils.getKeyRing().rotate("k2", "cm90YXRlZFNlY3JldA==");
+        String after = generateToken(2L, "after@email.com");
+
+        assertEquals("k2", Jwts.parser().setSigningKey("cm90YXRlZFNlY3JldA==").parseClaimsJws(after).getHeader().getKeyId());
+        assertTrue(jwtUtils.validateJwtToken(before));
+        assertTrue(jwtUtils.validateJwtToken(after));
+
+        assertEquals(new TreeSet<>(Arrays.asList("k1", "k2")), jwtUtils.getKeyRing().getKeyIds());
+
+        assertTrue(jwtUtils.getKeyRing().retire("k1"));
+
+        assertEquals(JwtValidationResult.Failure.INVALID_SIGNATURE, jwtUtils.validate(before).getFailure());
+        assertTrue(jwtUtils.validateJwtToken(after));
+        assertFalse(jwtUtils.getKeyRing().retire("k1"));
+        assertEquals(Collections.singleton("k2"), jwtUtils.getKeyRing().getKeyIds());
+    }
+
+    @Test
+    public void testKeyIdInRingCannotBeRotatedTo() {
+        String before = generateToken(1L, "before@email.com");
+
+        assertThrows(IllegalStateException.class, () -> jwtUtils.getKeyRing().rotate("k1", "cm90YXRlZFNlY3JldA=="));
+
+        assertTrue(jwtUtils.validateJwtToken(before));
+    }
+
+    @Test
+    public void testActiveKeyCannotBeRetired() {
+        assertThrows(IllegalArgumentException.class, () -> jwtUtils.getKeyRing().retire("k1"));
+    }
+
+    @Test
+    public void testConfiguredVerificationKeysAreAccepted() {
+        org.springframework.test.util.ReflectionTestUtils.setField(jwtUtils, "jwtVerificationKeys", "old:b2xkU2VjcmV0, broken");
+        jwtUtils.init();
+        String old = Jwts.builder().setHeaderParam("kid", "old").setSubject("old@email.com")
+            .signWith(SignatureAlgorithm.HS512, "b2xkU2VjcmV0").compact();
+
+        assertEquals("old@email.com", jwtUtils.getUserNameFromJwtToken(old));
+    }
+
+    @Test
+    public void testValidationFailuresAreCountedPerReason() {
+        io.micrometer.core.instrument.simple.SimpleMeterRegistry registry = new io.micrometer.core.instrument.simple.SimpleMeterRegistry();
+        jwtUtils.bindTo(registry);
+
+        jwtUtils.validate("malformed.token");
+        jwtUtils.validate("malformed.token");
+        jwtUtils.validate("");
+        jwtUtils.validate(generateToken(1L, "user@email.com"));
+
+        assertEquals(2.0, registry.get("jwt.validation.failures").tag("reason", "malformed").counter().count());
+        assertEquals(1.0, registry.get("jwt.validation.failures").tag("reason", "empty").counter().count());
+        assertEquals(0.0, registry.get("jwt.validation.failures").tag("reason", "expired").counter().count());
+    }
 }
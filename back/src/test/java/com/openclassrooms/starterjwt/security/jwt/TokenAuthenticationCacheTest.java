@@ -0,0 +1,133 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenAuthenticationCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final long epochMillis = Instant.parse("2030-01-01T00:00:00Z").toEpochMilli();
+    /**
+     * Moves along with the ticker.
+     */
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(epochMillis + TimeUnit.NANOSECONDS.toMillis(nanos.get()));
+        }
+    };
+    private TokenAuthenticationCache cache;
+    private UserDetailsImpl alice;
+    private UserDetailsImpl bob;
+    private Date inOneHour;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new TokenAuthenticationCache(100, 60000, ticker, clock, Runnable::run);
+        alice = new UserDetailsImpl(1L, "alice@example.com", "Alice", "A", false, "pass");
+        bob = new UserDetailsImpl(2L, "bob@example.com", "Bob", "B", false, "pass");
+        inOneHour = new Date(epochMillis + 3600000);
+    }
+
+    @Test
+    public void testPutAndGet() {
+        cache.put("token-a", alice, inOneHour);
+
+        assertSame(alice, cache.get("token-a"));
+        assertNull(cache.get("unknown"));
+    }
+
+    @Test
+    public void testEntryExpiresAfterTtl() {
+        cache.put("token-a", alice, inOneHour);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        assertNull(cache.get("token-a"));
+    }
+
+    @Test
+    public void testEntryNeverOutlivesToken() {
+        cache.put("expired", alice, new Date(epochMillis - 1000));
+
+        assertNull(cache.get("expired"));
+    }
+
+    @Test
+    public void testEntryExpiresWithToken() {
+        cache.put("token-a", alice, new Date(epochMillis + 10000));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertSame(alice, cache.get("token-a"));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertNull(cache.get("token-a"));
+    }
+
+    @Test
+    public void testEvictUser() {
+        cache.put("token-a1", alice, inOneHour);
+        cache.put("token-a2", alice, inOneHour);
+        cache.put("token-b", bob, inOneHour);
+
+        cache.evictUser(1L);
+
+        assertNull(cache.get("token-a1"));
+        assertNull(cache.get("token-a2"));
+        assertSame(bob, cache.get("token-b"));
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        TokenAuthenticationCache small = new TokenAuthenticationCache(10, 60000, ticker, clock, Runnable::run);
+        for (int i = 0; i < 100; i++) {
+            small.put("token-" + i, alice, inOneHour);
+        }
+
+        assertTrue(small.size() <= 10);
+    }
+
+    @Test
+    public void testEvictAll() {
+        cache.put("token-a", alice, inOneHour);
+
+        cache.evictAll();
+
+        assertNull(cache.get("token-a"));
+    }
+
+    @Test
+    public void testHitAndMissMetrics() {
+        io.micrometer.core.instrument.simple.SimpleMeterRegistry registry = new io.micrometer.core.instrument.simple.SimpleMeterRegistry();
+        cache.bindTo(registry);
+        cache.put("token-a", alice, inOneHour);
+
+        cache.get("token-a");
+        cache.get("unknown");
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "authTokens").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "authTokens").tag("result", "miss").functionCounter().count());
+    }
+}
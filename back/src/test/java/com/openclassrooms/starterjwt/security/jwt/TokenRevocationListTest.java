@@ -0,0 +1,50 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TokenRevocationListTest {
+    private TokenAuthenticationCache authenticationCache;
+    private TokenRevocationList revocationList;
+
+    @BeforeEach
+    public void setUp() {
+        JwtUtils jwtUtils = mock(JwtUtils.class);
+        when(jwtUtils.getExpirationMs()).thenReturn(60000);
+        authenticationCache = mock(TokenAuthenticationCache.class);
+        revocationList = new TokenRevocationList(jwtUtils, authenticationCache);
+    }
+
+    @Test
+    public void testUnknownUserIsNotRevoked() {
+        Claims claims = Jwts.claims().setIssuedAt(new Date());
+
+        assertFalse(revocationList.isRevoked(1L, claims));
+    }
+
+    @Test
+    public void testTokenIssuedBeforeRevocationIsRevoked() {
+        Claims claims = Jwts.claims().setIssuedAt(new Date(System.currentTimeMillis() - 5000));
+
+        revocationList.revokeUser(1L);
+
+        assertTrue(revocationList.isRevoked(1L, claims));
+        assertFalse(revocationList.isRevoked(2L, claims));
+        verify(authenticationCache).evictUser(1L);
+    }
+
+    @Test
+    public void testTokenIssuedAfterRevocationIsAccepted() {
+        revocationList.revokeUser(1L);
+        Claims claims = Jwts.claims().setIssuedAt(new Date(System.currentTimeMillis() + 5000));
+
+        assertFalse(revocationList.isRevoked(1L, claims));
+    }
+}
@@ -54,6 +54,7 @@ public class UserDetailsServiceImplTest {
         assertEquals(1L, userDetailsImpl.getId());
         assertEquals("John", userDetailsImpl.getFirstName());
         assertEquals("Doe", userDetailsImpl.getLastName());
+        assertFalse(userDetailsImpl.getAdmin());
         verify(userRepository, times(1)).findByEmail(testEmail);
     }
 
@@ -84,4 +85,19 @@ public class UserDetailsServiceImplTest {
         assertNotNull(result);
         verify(mockRepo).findByEmail(anyString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void updatePassword_StoresNewHash() {
+        UserDetailsImpl user = UserDetailsImpl.builder()
+                .id(1L).username("test@example.com").firstName("Test").lastName("User").admin(true).password("old")
+                .build();
+
+        UserDetailsImpl updated = userDetailsService.updatePassword(user, "{bcrypt}new");
+
+        verify(userRepository).updatePassword("test@example.com", "{bcrypt}new");
+        assertEquals("{bcrypt}new", updated.getPassword());
+        assertEquals(1L, updated.getId());
+        assertEquals("test@example.com", updated.getUsername());
+        assertTrue(updated.getAdmin());
+    }
+}
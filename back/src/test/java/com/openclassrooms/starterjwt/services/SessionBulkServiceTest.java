@@ -0,0 +1,344 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.ImportException;
+import com.openclassrooms.starterjwt.models.Session;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.validation.Validation;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SessionBulkServiceTest {
+    private static final String CSV_HEADER = "name,date,teacher_id,description,capacity\n";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+
+    private final SessionFactory sessionFactory = mock(SessionFactory.class);
+
+    private final Cache cache = mock(Cache.class);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final SessionBulkService bulkService = new SessionBulkService(jdbcTemplate, transactionTemplate,
+            entityManagerFactory, objectMapper, Validation.buildDefaultValidatorFactory().getValidator(), 100);
+
+    /**
+     * Every batch inserted, as a copy: the service reuses its list between batches.
+     */
+    private final List<List<SessionDto>> batches = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any()))
+                .thenReturn(Collections.singletonList(1L));
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any()))
+                .thenAnswer(invocation -> {
+                    batches.add(new ArrayList<>(invocation.<List<SessionDto>>getArgument(1)));
+                    return new int[0][];
+                });
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+    }
+
+    @Test
+    public void testImportCsvWithQuotedFields() {
+        String csv = "Capacity,Description,Teacher_Id,Name,Date\n"
+                + "10,\"Stretch, breathe\",1,Morning flow,2030-01-01T08:00:00Z\n"
+                + "\n"
+                + ",\"Quotes \"\"inside\"\" and\na new line\",1,Evening,2030-01-01T19:00:00Z\n";
+
+        assertEquals(2, bulkService.importSessions(reader(csv), SessionBulkService.Format.CSV));
+
+        List<SessionDto> sessions = batches.get(0);
+        assertEquals("Morning flow", sessions.get(0).getName());
+        assertEquals("Stretch, breathe", sessions.get(0).getDescription());
+        assertEquals(Instant.parse("2030-01-01T08:00:00Z"), sessions.get(0).getDate().toInstant());
+        assertEquals(1L, sessions.get(0).getTeacher_id());
+        assertEquals(10, sessions.get(0).getCapacity());
+        assertEquals("Quotes \"inside\" and\na new line", sessions.get(1).getDescription());
+        assertNull(sessions.get(1).getCapacity());
+    }
+
+    @Test
+    public void testImportCountsLinesOfMultilineFields() {
+        String csv = CSV_HEADER
+                + "Evening,2030-01-01T19:00:00Z,1,\"Spans\nthree\nlines\",\n"
+                + "Late,tomorrow,1,Bad date,\n";
+
+        ImportException e = assertThrows(ImportException.class,
+                () -> bulkService.importSessions(reader(csv), SessionBulkService.Format.CSV));
+
+        assertEquals(5, e.getLine());
+        assertTrue(e.getMessage().startsWith("Line 5: Text 'tomorrow' could not be parsed"));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testImportRejectsBadCsvRows() {
+        assertEquals("Line 2: For input string: \"one\"", assertThrows(ImportException.class,
+                () -> bulkService.importSessions(reader(CSV_HEADER + "Morning,2030-01-01T08:00:00Z,one,Flow,\n"),
+                        SessionBulkService.Format.CSV)).getMessage());
+        assertEquals("Line 2: capacity must be greater than or equal to 1", assertThrows(ImportException.class,
+                () -> bulkService.importSessions(reader(CSV_HEADER + "Morning,2030-01-01T08:00:00Z,1,Flow,0\n"),
+                        SessionBulkService.Format.CSV)).getMessage());
+        assertEquals("Line 2: date must not be null", assertThrows(ImportException.class,
+                () -> bulkService.importSessions(reader(CSV_HEADER + "Morning,,1,Flow\n"),
+                        SessionBulkService.Format.CSV)).getMessage());
+        assertEquals("Line 2: unterminated quoted field", assertThrows(ImportException.class,
+                () -> bulkService.importSessions(reader(CSV_HEADER + "Morning,2030-01-01T08:00:00Z,1,\"Flow\n"),
+                        SessionBulkService.Format.CSV)).getMessage());
+        assertTrue(batches.isEmpty());
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    public void testImportEmptyCsv() {
+        assertEquals(0, bulkService.importSessions(reader(""), SessionBulkService.Format.CSV));
+        assertEquals(0, bulkService.importSessions(reader(CSV_HEADER), SessionBulkService.Format.CSV));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testImportNdjson() {
+        String ndjson = "{\"id\":7,\"name\":\"Morning\",\"date\":\"2030-01-01T08:00:00Z\",\"teacher_id\":1,"
+                + "\"description\":\"Flow\",\"capacity\":null,\"participant_count\":3}\n"
+                + "\n"
+                + "{\"name\":\"Evening\",\"date\":\"2030-01-01T19:00:00Z\",\"teacher_id\":1,\"description\":\"Rest\"}\n";
+
+        assertEquals(2, bulkService.importSessions(reader(ndjson), SessionBulkService.Format.NDJSON));
+
+        assertEquals(Arrays.asList("Morning", "Evening"), Arrays.asList(
+                batches.get(0).get(0).getName(), batches.get(0).get(1).getName()));
+    }
+
+    @Test
+    public void testImportEvictsCachedSessions() {
+        bulkService.importSessions(reader(CSV_HEADER + "Morning,2030-01-01T08:00:00Z,1,Flow,\n"),
+                SessionBulkService.Format.CSV);
+
+        verify(cache).evict(Session.class);
+        verify(cache).evictDefaultQueryRegion();
+    }
+
+    @Test
+    public void testImportRejectsBadNdjsonRows() {
+        ImportException malformed = assertThrows(ImportException.class, () -> bulkService.importSessions(
+                reader("\n{\"name\":\"Morning\",\n"), SessionBulkService.Format.NDJSON));
+        assertEquals(2, malformed.getLine());
+
+        ImportException badDate = assertThrows(ImportException.class, () -> bulkService.importSessions(
+                reader("{\"name\":\"Morning\",\"date\":\"tomorrow\",\"teacher_id\":1,\"description\":\"Flow\"}\n"),
+                SessionBulkService.Format.NDJSON));
+        assertEquals(1, badDate.getLine());
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testImportNamesLineOfUnknownTeacher() {
+        String csv = CSV_HEADER
+                + "Morning,2030-01-01T08:00:00Z,1,Flow,\n"
+                + "Noon,2030-01-01T12:00:00Z,2,Flow,\n"
+                + "Evening,2030-01-01T19:00:00Z,1,Flow,\n";
+
+        assertEquals("Line 3: unknown teacher 2", assertThrows(ImportException.class,
+                () -> bulkService.importSessions(reader(csv), SessionBulkService.Format.CSV)).getMessage());
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testImportInBatches() throws Exception {
+        StringBuilder csv = new StringBuilder(CSV_HEADER);
+        for (int i = 0; i < SessionBulkService.BATCH_SIZE + 1; i++) {
+            csv.append("Session ").append(i).append(",2030-01-01T08:00:00Z,1,Flow,12\n");
+        }
+
+        assertEquals(SessionBulkService.BATCH_SIZE + 1,
+                bulkService.importSessions(reader(csv.toString()), SessionBulkService.Format.CSV));
+
+        assertEquals(SessionBulkService.BATCH_SIZE, batches.get(0).size());
+        assertEquals(1, batches.get(1).size());
+        // Teachers already seen are not looked up again
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), any());
+
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<SessionDto>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(), setter.capture());
+        PreparedStatement statement = mock(PreparedStatement.class);
+        SessionDto session = batches.get(1).get(0);
+        setter.getValue().setValues(statement, session);
+        verify(statement).setString(1, "Session " + SessionBulkService.BATCH_SIZE);
+        verify(statement).setLong(4, 1L);
+        verify(statement).setInt(5, 12);
+        session.setCapacity(null);
+        setter.getValue().setValues(statement, session);
+        verify(statement).setNull(5, Types.INTEGER);
+    }
+
+    @Test
+    public void testImportNamesLinesOfFailingBatch() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any()))
+                .thenThrow(new DataIntegrityViolationException("FK_SESSIONS_TEACHER"));
+        String csv = CSV_HEADER
+                + "Morning,2030-01-01T08:00:00Z,1,Flow,\n"
+                + "Evening,2030-01-01T19:00:00Z,1,Rest,\n";
+
+        ImportException e = assertThrows(ImportException.class,
+                () -> bulkService.importSessions(reader(csv), SessionBulkService.Format.CSV));
+
+        assertEquals(2, e.getLine());
+        assertEquals("Line 2: constraint violated by a session of lines 2 to 3: FK_SESSIONS_TEACHER", e.getMessage());
+    }
+
+    @Test
+    public void testExportCsv() throws Exception {
+        rows(row(1L, "Morning, early", "2030-01-01T08:00:00Z", 1L, "Say \"om\"\nthen breathe", 10, 2),
+                row(2L, "Unassigned", null, null, null, null, 0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        bulkService.exportSessions(out, SessionBulkService.Format.CSV);
+
+        assertEquals("id,name,date,teacher_id,description,capacity,participant_count\n"
+                + "1,\"Morning, early\",2030-01-01T08:00:00Z,1,\"Say \"\"om\"\"\nthen breathe\",10,2\n"
+                + "2,Unassigned,,,,,0\n", out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    public void testExportNdjson() throws Exception {
+        rows(row(1L, "Morning", "2030-01-01T08:00:00Z", 1L, "Flow", 10, 2),
+                row(2L, "Unassigned", null, null, "None yet", null, 0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        bulkService.exportSessions(out, SessionBulkService.Format.NDJSON);
+
+        assertEquals("{\"id\":1,\"name\":\"Morning\",\"date\":\"2030-01-01T08:00:00Z\",\"teacher_id\":1,"
+                + "\"description\":\"Flow\",\"capacity\":10,\"participant_count\":2}\n"
+                + "{\"id\":2,\"name\":\"Unassigned\",\"date\":null,\"teacher_id\":null,"
+                + "\"description\":\"None yet\",\"capacity\":null,\"participant_count\":0}\n",
+                out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    public void testExportReadsWithCursor() throws Exception {
+        rows();
+
+        bulkService.exportSessions(new ByteArrayOutputStream(), SessionBulkService.Format.CSV);
+
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcTemplate).query(creator.capture(), any(RowCallbackHandler.class));
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+                .thenReturn(statement);
+        creator.getValue().createPreparedStatement(connection);
+        verify(statement).setFetchSize(100);
+    }
+
+    @Test
+    public void testExportPassesWriteFailuresOn() {
+        rows(row(1L, "Morning", "2030-01-01T08:00:00Z", 1L, "Flow", 10, 2));
+        OutputStream closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> bulkService.exportSessions(closed, SessionBulkService.Format.CSV));
+        assertThrows(IOException.class, () -> bulkService.exportSessions(closed, SessionBulkService.Format.NDJSON));
+    }
+
+    private static BufferedReader reader(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+
+    private void rows(ResultSet... rows) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    /**
+     * A single row, answering {@code wasNull()} for the last column read as JDBC does.
+     */
+    private static ResultSet row(Long id, String name, String date, Long teacherId, String description,
+                                 Integer capacity, int participantCount) {
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("id", id);
+        columns.put("name", name);
+        columns.put("date", date == null ? null : Timestamp.from(Instant.parse(date)));
+        columns.put("teacher_id", teacherId);
+        columns.put("description", description);
+        columns.put("capacity", capacity);
+        columns.put("participant_count", participantCount);
+        boolean[] lastNull = new boolean[1];
+        return mock(ResultSet.class, invocation -> {
+            String method = invocation.getMethod().getName();
+            if (method.equals("wasNull")) {
+                return lastNull[0];
+            }
+            if (invocation.getArguments().length != 1 || !(invocation.getArgument(0) instanceof String)) {
+                return null;
+            }
+            Object value = columns.get(invocation.<String>getArgument(0));
+            lastNull[0] = value == null;
+            switch (method) {
+                case "getLong":
+                    return value == null ? 0L : ((Number) value).longValue();
+                case "getInt":
+                    return value == null ? 0 : ((Number) value).intValue();
+                case "getString":
+                    return value == null ? null : value.toString();
+                case "getTimestamp":
+                    return value;
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+    }
+}
@@ -1,20 +1,37 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.SessionCursor;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.repository.projection.SessionParticipant;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +46,9 @@ public class SessionServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
     @InjectMocks
     private SessionService sessionService;
 
@@ -61,25 +81,161 @@ public class SessionServiceTest {
         verify(sessionRepository).save(testSession);
     }
 
+    @Test
+    public void testCreateSession_UnknownTeacher() {
+        when(sessionRepository.save(any(Session.class))).thenThrow(new DataIntegrityViolationException("fk"));
+
+        assertThrows(BadRequestException.class, () -> sessionService.create(testSession));
+    }
+
     @Test
     public void testDeleteSession() {
-        doNothing().when(sessionRepository).deleteById(1L);
+        when(sessionRepository.removeById(1L)).thenReturn(1);
         
         sessionService.delete(1L);
         
-        verify(sessionRepository).deleteById(1L);
+        verify(sessionRepository).removeById(1L);
+        verify(sessionRepository, never()).findById(anyLong());
     }
 
     @Test
-    public void testFindAllSessions() {
-        List<Session> sessions = Arrays.asList(testSession);
-        when(sessionRepository.findAll()).thenReturn(sessions);
-        
-        List<Session> found = sessionService.findAll();
-        
+    public void testDeleteSessionNotFound() {
+        when(sessionRepository.removeById(2L)).thenReturn(0);
+
+        assertThrows(NotFoundException.class, () -> sessionService.delete(2L));
+    }
+
+    @Test
+    public void testFindAllSummaries() {
+        SessionSummary summary = summary(1L);
+        when(sessionRepository.findAllSummaries()).thenReturn(Arrays.asList(summary));
+
+        List<SessionSummary> found = sessionService.findAllSummaries();
+
         assertNotNull(found);
         assertEquals(1, found.size());
-        assertEquals("Test Session", found.get(0).getName());
+        assertEquals(1L, found.get(0).getId());
+    }
+
+    @Test
+    public void testFindSummaryById() {
+        SessionSummary summary = summary(1L);
+        when(sessionRepository.findSummaryById(1L)).thenReturn(Optional.of(summary));
+        when(sessionRepository.findSummaryById(2L)).thenReturn(Optional.empty());
+
+        assertSame(summary, sessionService.findSummaryById(1L));
+        assertNull(sessionService.findSummaryById(2L));
+    }
+
+    @Test
+    public void testFindParticipantIdsGroupsBySession() {
+        List<SessionSummary> page = Arrays.asList(summary(1L), summary(2L), summary(3L));
+        List<SessionParticipant> rows = Arrays.asList(participant(1L, 10L), participant(1L, 11L), participant(2L, 10L));
+        when(sessionRepository.findParticipants(Arrays.asList(1L, 2L, 3L))).thenReturn(rows);
+
+        Map<Long, List<Long>> found = sessionService.findParticipantIds(page);
+
+        assertEquals(Arrays.asList(10L, 11L), found.get(1L));
+        assertEquals(Collections.singletonList(10L), found.get(2L));
+        assertFalse(found.containsKey(3L));
+    }
+
+    @Test
+    public void testFindParticipantIdsOfEmptyPage() {
+        Map<Long, List<Long>> found = sessionService.findParticipantIds(Collections.emptyList());
+
+        assertTrue(found.isEmpty());
+        verify(sessionRepository, never()).findParticipants(any());
+    }
+
+    @Test
+    public void testForEachChunkBatchesParticipantLookups() {
+        SessionSummary first = summary(1L), second = summary(2L), third = summary(3L);
+        when(sessionRepository.streamAllSummaries()).thenReturn(Stream.of(first, second, third));
+        List<SessionParticipant> rows = Arrays.asList(participant(2L, 10L));
+        when(sessionRepository.findParticipants(Arrays.asList(1L, 2L))).thenReturn(rows);
+        when(sessionRepository.findParticipants(Collections.singletonList(3L))).thenReturn(Collections.emptyList());
+        List<List<SessionSummary>> chunks = new ArrayList<>();
+        List<Map<Long, List<Long>>> participants = new ArrayList<>();
+
+        sessionService.forEachChunk(2, (chunk, ids) -> {
+            chunks.add(new ArrayList<>(chunk));
+            participants.add(ids);
+        });
+
+        assertEquals(Arrays.asList(Arrays.asList(first, second), Collections.singletonList(third)), chunks);
+        assertEquals(Collections.singletonList(10L), participants.get(0).get(2L));
+        assertTrue(participants.get(1).isEmpty());
+    }
+
+    @Test
+    public void testFindAllParticipantIds() {
+        List<SessionParticipant> rows = Arrays.asList(participant(4L, 1L));
+        when(sessionRepository.findAllParticipants()).thenReturn(rows);
+
+        Map<Long, List<Long>> found = sessionService.findAllParticipantIds();
+
+        assertEquals(Collections.singletonList(1L), found.get(4L));
+    }
+
+    @Test
+    public void testFindFirstPage() {
+        Date from = new Date(0L);
+        List<SessionSummary> page = Arrays.asList(summary(1L));
+        when(sessionRepository.findFirstPage(from, null, 2L, PageRequest.of(0, 11))).thenReturn(page);
+
+        List<SessionSummary> found = sessionService.findPage(null, from, null, 2L, 11);
+
+        assertEquals(1, found.size());
+        verify(sessionRepository, never()).findPageAfter(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testFindPageAfterCursor() {
+        Date date = new Date(1000L);
+        List<SessionSummary> page = Arrays.asList(summary(6L));
+        when(sessionRepository.findPageAfter(date, 5L, null, null, null, PageRequest.of(0, 21))).thenReturn(page);
+
+        List<SessionSummary> found = sessionService.findPage(new SessionCursor(date, 5L), null, null, null, 21);
+
+        assertEquals(1, found.size());
+        verify(sessionRepository, never()).findFirstPage(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testFindUserPage() {
+        Date date = new Date(1000L);
+        List<SessionSummary> first = Arrays.asList(summary(5L));
+        List<SessionSummary> next = Arrays.asList(summary(6L));
+        when(sessionRepository.findUserFirstPage(1L, date, null, PageRequest.of(0, 11))).thenReturn(first);
+        when(sessionRepository.findUserPageAfter(1L, date, 5L, null, null, PageRequest.of(0, 11))).thenReturn(next);
+
+        assertEquals(first, sessionService.findUserPage(1L, null, date, null, 11));
+        assertEquals(next, sessionService.findUserPage(1L, new SessionCursor(date, 5L), null, null, 11));
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    public void testFindUserPageOfUnknownUser() {
+        when(sessionRepository.findUserFirstPage(eq(1L), any(), any(), any())).thenReturn(Collections.emptyList());
+        when(sessionRepository.findUserFirstPage(eq(2L), any(), any(), any())).thenReturn(Collections.emptyList());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.existsById(2L)).thenReturn(false);
+
+        assertTrue(sessionService.findUserPage(1L, null, null, null, 21).isEmpty());
+        assertThrows(NotFoundException.class, () -> sessionService.findUserPage(2L, null, null, null, 21));
+    }
+
+    @Test
+    public void testFindParticipatedSessionIds() {
+        List<SessionSummary> page = Arrays.asList(summary(1L), summary(2L));
+        when(sessionRepository.findParticipatedSessionIds("user@studio.com", Arrays.asList(1L, 2L)))
+                .thenReturn(Collections.singletonList(2L));
+
+        assertEquals(Collections.singleton(2L), sessionService.findParticipatedSessionIds("user@studio.com", page));
+        assertTrue(sessionService.findParticipatedSessionIds(null, page).isEmpty());
+        assertTrue(sessionService.findParticipatedSessionIds("user@studio.com", Collections.emptyList()).isEmpty());
+        verify(sessionRepository, times(1)).findParticipatedSessionIds(any(), any());
     }
 
     @Test
@@ -103,36 +259,385 @@ public class SessionServiceTest {
 
     @Test
     public void testUpdateSession() {
-        when(sessionRepository.save(any(Session.class))).thenReturn(testSession);
-        
-        Session updated = sessionService.update(1L, testSession);
-        
-        assertNotNull(updated);
-        assertEquals(1L, updated.getId());
-        verify(sessionRepository).save(testSession);
+        Session stored = storedSession(3L);
+        List<User> participants = stored.getUsers();
+
+        Session updated = sessionService.update(1L, new Session().setName("Renamed").setCapacity(10), null);
+
+        assertSame(stored, updated);
+        assertEquals("Renamed", stored.getName());
+        assertEquals(10, stored.getCapacity());
+        assertSame(participants, stored.getUsers());
+        verify(sessionRepository).saveAndFlush(stored);
+        verify(sessionRepository, never()).syncParticipantCount(any());
+    }
+
+    @Test
+    public void testUpdateSessionReplacesListedParticipants() {
+        Session stored = storedSession(3L);
+
+        sessionService.update(1L, new Session().setName("Renamed").setUsers(Arrays.asList(testUser)), null);
+
+        assertEquals(Arrays.asList(testUser), stored.getUsers());
+        verify(sessionRepository).saveAndFlush(stored);
+        verify(sessionRepository).syncParticipantCount(1L);
+    }
+
+    @Test
+    public void testUpdateSession_NotFound() {
+        when(sessionRepository.lockById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> sessionService.update(2L, testSession, null));
+        verify(sessionRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void testUpdateSession_StaleVersion() {
+        storedSession(3L);
+
+        assertThrows(PreconditionFailedException.class, () -> sessionService.update(1L, testSession, 2L));
+        verify(sessionRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void testUpdateSession_ExpectedVersion() {
+        Session stored = storedSession(3L);
+
+        sessionService.update(1L, testSession, 3L);
+
+        verify(sessionRepository).saveAndFlush(stored);
+    }
+
+    @Test
+    public void testUpdateSession_UnknownTeacher() {
+        storedSession(0L);
+        when(sessionRepository.saveAndFlush(any(Session.class))).thenThrow(new DataIntegrityViolationException("fk"));
+
+        assertThrows(BadRequestException.class, () -> sessionService.update(1L, testSession, null));
+    }
+
+    @Test
+    public void testUpdateSession_ConcurrentVersionBump() {
+        storedSession(3L);
+        when(sessionRepository.saveAndFlush(any(Session.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Session.class, 1L));
+
+        assertThrows(PreconditionFailedException.class, () -> sessionService.update(1L, testSession, 3L));
+        assertThrows(ConflictException.class, () -> sessionService.update(1L, testSession, null));
+    }
+
+    @Test
+    public void testPatchSession() {
+        Session stored = storedSession(3L);
+        stored.setName("Kept");
+
+        sessionService.patch(1L, session -> session.setCapacity(12), null);
+
+        assertEquals("Kept", stored.getName());
+        assertEquals(12, stored.getCapacity());
+        verify(sessionRepository).saveAndFlush(stored);
+    }
+
+    @Test
+    public void testPatchSessionBelowParticipantCount() {
+        Session stored = storedSession(3L);
+        stored.setParticipantCount(5);
+
+        assertThrows(BadRequestException.class, () -> sessionService.patch(1L, session -> session.setCapacity(4), null));
+        verify(sessionRepository, never()).saveAndFlush(any());
     }
 
     @Test
     public void testParticipate() {
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(sessionRepository.save(any(Session.class))).thenReturn(testSession);
-        
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenReturn(1);
+
         sessionService.participate(1L, 1L);
-        
-        verify(sessionRepository).save(testSession);
-        assertTrue(testSession.getUsers().contains(testUser));
+
+        verify(sessionRepository).reserveSeat(1L);
+        verify(sessionRepository).addParticipant(1L, 1L);
+        verify(sessionRepository, never()).findById(any());
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testParticipationWritesLockCachedParticipants() {
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenReturn(1);
+        when(sessionRepository.releaseSeat(1L, 1L)).thenReturn(1);
+
+        sessionService.participate(1L, 1L);
+        sessionService.noLongerParticipate(1L, 1L);
+
+        InOrder inOrder = inOrder(sessionRepository);
+        inOrder.verify(sessionRepository).lockCachedParticipants(1L);
+        inOrder.verify(sessionRepository).addParticipant(1L, 1L);
+        inOrder.verify(sessionRepository).lockCachedParticipants(1L);
+        inOrder.verify(sessionRepository).removeParticipant(1L, 1L);
+    }
+
+    @Test
+    public void testParticipateAlreadyParticipating() {
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> sessionService.participate(1L, 1L));
+    }
+
+    @Test
+    public void testParticipateConcurrentDuplicate() {
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenThrow(new DataIntegrityViolationException("PRIMARY KEY ON PARTICIPATE"));
+
+        assertThrows(BadRequestException.class, () -> sessionService.participate(1L, 1L));
+    }
+
+    @Test
+    public void testParticipateSessionNotFound() {
+        when(sessionRepository.reserveSeat(2L)).thenReturn(0);
+        when(sessionRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> sessionService.participate(2L, 1L));
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Test
+    public void testParticipateUserNotFound() {
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(0);
+        when(userRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> sessionService.participate(1L, 2L));
+    }
+
+    @Test
+    public void testParticipateSessionFull() {
+        when(sessionRepository.reserveSeat(1L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipation(1L, 1L)).thenReturn(0);
+
+        assertThrows(ConflictException.class, () -> sessionService.participate(1L, 1L));
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Test
+    public void testParticipateFullSessionAlreadyParticipating() {
+        when(sessionRepository.reserveSeat(1L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipation(1L, 1L)).thenReturn(1);
+
+        assertThrows(BadRequestException.class, () -> sessionService.participate(1L, 1L));
     }
 
     @Test
     public void testNoLongerParticipate() {
-        testSession.getUsers().add(testUser);
+        when(sessionRepository.releaseSeat(1L, 1L)).thenReturn(1);
 
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+        sessionService.noLongerParticipate(1L, 1L);
+
+        verify(sessionRepository).releaseSeat(1L, 1L);
+        verify(sessionRepository).removeParticipant(1L, 1L);
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testNoLongerParticipateNotParticipating() {
+        when(sessionRepository.releaseSeat(1L, 1L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> sessionService.noLongerParticipate(1L, 1L));
+        verify(sessionRepository, never()).removeParticipant(any(), any());
+    }
+
+    @Test
+    public void testNoLongerParticipateSessionNotFound() {
+        when(sessionRepository.releaseSeat(2L, 1L)).thenReturn(0);
+        when(sessionRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> sessionService.noLongerParticipate(2L, 1L));
+    }
+
+    @Test
+    public void testCreateSessionOverCapacity() {
+        testSession.setCapacity(1);
+        testSession.setUsers(Arrays.asList(testUser, new User().setId(2L)));
+
+        assertThrows(BadRequestException.class, () -> sessionService.create(testSession));
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testCreateSessionWithParticipantsCountsSeats() {
+        testSession.setUsers(Collections.singletonList(testUser));
+        when(sessionRepository.save(any(Session.class))).thenReturn(testSession);
+
+        sessionService.create(testSession);
+
+        verify(sessionRepository).syncParticipantCount(1L);
+    }
+
+    @Test
+    public void testParticipateClearsWaitlistEntry() {
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 1L)).thenReturn(1);
+
+        sessionService.participate(1L, 1L);
+
+        verify(waitlistRepository).deleteEntry(1L, 1L);
+    }
+
+    @Test
+    public void testNoLongerParticipatePromotesNextWaiter() {
+        when(sessionRepository.releaseSeat(1L, 1L)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L))
+                .thenReturn(Optional.of(new WaitlistEntry(5L, 1L, 2L, null)), Optional.empty());
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(1);
 
         sessionService.noLongerParticipate(1L, 1L);
 
-        verify(sessionRepository).save(testSession);
-        assertFalse(testSession.getUsers().contains(testUser));
+        verify(sessionRepository).removeParticipant(1L, 1L);
+        verify(waitlistRepository).deleteEntry(1L, 2L);
+        verify(sessionRepository).addParticipant(1L, 2L);
+        verify(sessionRepository, never()).syncParticipantCount(any());
+    }
+
+    @Test
+    public void testReleaseSeats() {
+        List<Long> userIds = Arrays.asList(1L, 2L);
+        List<Long> sessionIds = Arrays.asList(3L, 4L);
+        when(sessionRepository.findIdsByParticipants(userIds)).thenReturn(sessionIds);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(3L))
+                .thenReturn(Optional.of(new WaitlistEntry(5L, 3L, 6L, null)), Optional.empty());
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(4L)).thenReturn(Optional.empty());
+        when(sessionRepository.reserveSeat(3L)).thenReturn(1);
+        when(sessionRepository.addParticipant(3L, 6L)).thenReturn(1);
+
+        sessionService.releaseSeats(userIds);
+
+        InOrder inOrder = inOrder(sessionRepository);
+        inOrder.verify(sessionRepository).releaseSeats(sessionIds, userIds);
+        inOrder.verify(sessionRepository).removeParticipants(sessionIds, userIds);
+        inOrder.verify(sessionRepository).addParticipant(3L, 6L);
+        verify(sessionRepository).lockCachedParticipants(4L);
+        verify(sessionRepository, never()).releaseSeat(any(), any());
+    }
+
+    @Test
+    public void testReleaseSeatsWithoutBookings() {
+        when(sessionRepository.findIdsByParticipants(Collections.singletonList(1L))).thenReturn(Collections.emptyList());
+
+        sessionService.releaseSeats(Collections.singletonList(1L));
+
+        verify(sessionRepository, never()).releaseSeats(any(), any());
+        verify(sessionRepository, never()).removeParticipants(any(), any());
+    }
+
+    @Test
+    public void testNoLongerParticipateWithoutWaiters() {
+        when(sessionRepository.releaseSeat(1L, 1L)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.empty());
+
+        sessionService.noLongerParticipate(1L, 1L);
+
+        verify(sessionRepository, never()).reserveSeat(any());
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Test
+    public void testParticipateOrWaitBooksFreeSeat() {
+        when(sessionRepository.lockById(1L)).thenReturn(Optional.of(1L));
+        when(sessionRepository.reserveSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(1);
+
+        assertTrue(sessionService.participateOrWait(1L, 2L));
+        verify(waitlistRepository, never()).save(any());
+    }
+
+    @Test
+    public void testParticipateOrWaitQueuesWhenFull() {
+        when(sessionRepository.lockById(1L)).thenReturn(Optional.of(1L));
+        when(sessionRepository.reserveSeat(1L)).thenReturn(0);
+        when(userRepository.existsById(2L)).thenReturn(true);
+
+        assertFalse(sessionService.participateOrWait(1L, 2L));
+        verify(waitlistRepository).save(argThat(entry -> entry.getSessionId() == 1L && entry.getUserId() == 2L));
+    }
+
+    @Test
+    public void testParticipateOrWaitRejectsWaiterAndParticipant() {
+        when(sessionRepository.lockById(1L)).thenReturn(Optional.of(1L));
+        when(sessionRepository.reserveSeat(1L)).thenReturn(0);
+        when(sessionRepository.countParticipation(1L, 2L)).thenReturn(0);
+        when(waitlistRepository.existsBySessionIdAndUserId(1L, 2L)).thenReturn(true);
+        when(sessionRepository.countParticipation(1L, 3L)).thenReturn(1);
+
+        assertThrows(BadRequestException.class, () -> sessionService.participateOrWait(1L, 2L));
+        assertThrows(BadRequestException.class, () -> sessionService.participateOrWait(1L, 3L));
+        verify(waitlistRepository, never()).save(any());
+    }
+
+    @Test
+    public void testParticipateOrWaitNotFound() {
+        when(sessionRepository.lockById(2L)).thenReturn(Optional.empty());
+        when(sessionRepository.lockById(1L)).thenReturn(Optional.of(1L));
+        when(sessionRepository.reserveSeat(1L)).thenReturn(0);
+        when(userRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> sessionService.participateOrWait(2L, 1L));
+        assertThrows(NotFoundException.class, () -> sessionService.participateOrWait(1L, 9L));
+    }
+
+    @Test
+    public void testLeaveWaitlist() {
+        when(waitlistRepository.deleteEntry(1L, 2L)).thenReturn(1);
+        when(waitlistRepository.deleteEntry(1L, 3L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(waitlistRepository.deleteEntry(2L, 2L)).thenReturn(0);
+        when(sessionRepository.existsById(2L)).thenReturn(false);
+
+        sessionService.leaveWaitlist(1L, 2L);
+        assertThrows(BadRequestException.class, () -> sessionService.leaveWaitlist(1L, 3L));
+        assertThrows(NotFoundException.class, () -> sessionService.leaveWaitlist(2L, 2L));
+    }
+
+    @Test
+    public void testFindWaitlist() {
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(waitlistRepository.findUserIds(1L)).thenReturn(Arrays.asList(3L, 2L));
+
+        assertEquals(Arrays.asList(3L, 2L), sessionService.findWaitlist(1L));
+        assertThrows(NotFoundException.class, () -> sessionService.findWaitlist(2L));
+    }
+
+    @Test
+    public void testDeleteSessionClearsWaitlist() {
+        when(sessionRepository.removeById(1L)).thenReturn(1);
+
+        sessionService.delete(1L);
+
+        verify(waitlistRepository).deleteBySession(1L);
+        verify(sessionRepository).removeById(1L);
+    }
+
+    private static SessionSummary summary(Long id) {
+        SessionSummary summary = mock(SessionSummary.class);
+        lenient().when(summary.getId()).thenReturn(id);
+        return summary;
+    }
+
+    private static SessionParticipant participant(Long sessionId, Long userId) {
+        SessionParticipant participant = mock(SessionParticipant.class);
+        when(participant.getSessionId()).thenReturn(sessionId);
+        when(participant.getUserId()).thenReturn(userId);
+        return participant;
+    }
+
+    private Session storedSession(Long version) {
+        Session stored = new Session().setId(1L).setName("Stored").setVersion(version).setUsers(new ArrayList<>());
+        when(sessionRepository.lockById(1L)).thenReturn(Optional.of(1L));
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(stored));
+        return stored;
     }
-}
\ No newline at end of file
+}
@@ -45,6 +45,13 @@ public class TeacherServiceTest {
         assertNull(found);
     }
 
+    @Test
+    public void testGetReference() {
+        when(teacherRepository.getById(1L)).thenReturn(testTeacher);
+        assertSame(testTeacher, teacherService.getReference(1L));
+        verify(teacherRepository, never()).findById(anyLong());
+    }
+
     @Test
     public void testFindAll() {
         List<Teacher> teachers = Arrays.asList(testTeacher);
@@ -54,4 +61,16 @@ public class TeacherServiceTest {
         assertEquals(1, found.size());
         assertEquals("John", found.get(0).getFirstName());
     }
+
+    @Test
+    public void testSave() {
+        when(teacherRepository.save(testTeacher)).thenReturn(testTeacher);
+        assertSame(testTeacher, teacherService.save(testTeacher));
+    }
+
+    @Test
+    public void testDelete() {
+        teacherService.delete(1L);
+        verify(teacherRepository).deleteById(1L);
+    }
 }
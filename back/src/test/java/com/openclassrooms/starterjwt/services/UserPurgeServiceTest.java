@@ -0,0 +1,91 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.UserPurgeDto;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class UserPurgeServiceTest {
+    private final UserService userService = mock(UserService.class);
+
+    private UserPurgeService purgeService;
+
+    @AfterEach
+    public void tearDown() {
+        purgeService.shutdown();
+    }
+
+    @Test
+    public void testPurgesInChunks() throws Exception {
+        when(userService.deleteAll(any())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).size());
+        purgeService = new UserPurgeService(userService, 2, 10);
+
+        UserPurgeDto queued = purgeService.purge(Arrays.asList(1L, 2L, 3L, 2L, 4L, 5L));
+
+        assertEquals(5, queued.getRequested());
+        UserPurgeDto done = awaitDone(queued.getId());
+        assertEquals(5, done.getProcessed());
+        assertEquals(5, done.getDeleted());
+        assertEquals(0, done.getFailed());
+        verify(userService).deleteAll(Arrays.asList(1L, 2L));
+        verify(userService).deleteAll(Arrays.asList(3L, 4L));
+        verify(userService).deleteAll(Collections.singletonList(5L));
+    }
+
+    @Test
+    public void testFailingChunkDoesNotStopPurge() throws Exception {
+        when(userService.deleteAll(Arrays.asList(1L, 2L))).thenThrow(new IllegalStateException("Deadlock"));
+        when(userService.deleteAll(Collections.singletonList(3L))).thenReturn(1);
+        purgeService = new UserPurgeService(userService, 2, 10);
+
+        UserPurgeDto done = awaitDone(purgeService.purge(Arrays.asList(1L, 2L, 3L)).getId());
+
+        assertEquals(3, done.getProcessed());
+        assertEquals(1, done.getDeleted());
+        assertEquals(2, done.getFailed());
+    }
+
+    @Test
+    public void testRefusesPurgesBeyondQueue() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.deleteAll(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return 1;
+        });
+        purgeService = new UserPurgeService(userService, 2, 1);
+
+        // One purge running and one queued, the next refused
+        purgeService.purge(Collections.singletonList(1L));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        UserPurgeDto queued = purgeService.purge(Collections.singletonList(2L));
+        assertThrows(ServiceUnavailableException.class, () -> purgeService.purge(Collections.singletonList(3L)));
+        assertEquals(UserPurgeDto.Status.QUEUED, purgeService.find(queued.getId()).getStatus());
+
+        release.countDown();
+        assertEquals(1, awaitDone(queued.getId()).getDeleted());
+        assertNull(purgeService.find("unknown"));
+    }
+
+    private UserPurgeDto awaitDone(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        UserPurgeDto purge;
+        while ((purge = purgeService.find(id)).getStatus() != UserPurgeDto.Status.DONE
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(UserPurgeDto.Status.DONE, purge.getStatus());
+        return purge;
+    }
+}
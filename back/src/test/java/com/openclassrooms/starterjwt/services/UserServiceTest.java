@@ -1,13 +1,21 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.UnauthorizedException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -16,6 +24,12 @@ import static org.mockito.Mockito.*;
 public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private WaitlistRepository waitlistRepository;
+    @Mock
+    private SessionService sessionService;
+    @Mock
+    private TokenRevocationList revocationList;
     @InjectMocks
     private UserService userService;
     private User testUser;
@@ -46,16 +60,63 @@ public class UserServiceTest {
         assertNull(found);
     }
 
+    @Test
+    public void testFindAllById() {
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(userRepository.findAllById(ids)).thenReturn(Collections.singletonList(testUser));
+        List<User> found = userService.findAllById(ids);
+        assertEquals(1, found.size());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
     @Test
     public void testDeleteUserSuccess() {
-        doNothing().when(userRepository).deleteById(1L);
-        userService.delete(1L);
-        verify(userRepository).deleteById(1L);
+        when(userRepository.existsByIdAndEmail(1L, "test@example.com")).thenReturn(true);
+        when(userRepository.removeByIdAndEmail(1L, "test@example.com")).thenReturn(1);
+        userService.delete(1L, "test@example.com");
+        verify(waitlistRepository).deleteByUser(1L);
+        verify(sessionService).releaseSeats(Collections.singletonList(1L));
+        verify(userRepository).removeByIdAndEmail(1L, "test@example.com");
+        verify(userRepository, never()).findById(anyLong());
+        verify(revocationList).revokeUser(1L);
     }
 
     @Test
     public void testDeleteUserNotFound() {
-        doThrow(new RuntimeException("User not found")).when(userRepository).deleteById(2L);
-        assertThrows(RuntimeException.class, () -> userService.delete(2L));
+        when(userRepository.existsByIdAndEmail(2L, "test@example.com")).thenReturn(false);
+        when(userRepository.existsById(2L)).thenReturn(false);
+        assertThrows(NotFoundException.class, () -> userService.delete(2L, "test@example.com"));
+        verifyNoInteractions(waitlistRepository, sessionService, revocationList);
+    }
+
+    @Test
+    public void testDeleteOtherUserUnauthorized() {
+        when(userRepository.existsByIdAndEmail(1L, "other@example.com")).thenReturn(false);
+        when(userRepository.existsById(1L)).thenReturn(true);
+        assertThrows(UnauthorizedException.class, () -> userService.delete(1L, "other@example.com"));
+        // Nothing of the account is touched, not even locked
+        verifyNoInteractions(waitlistRepository, sessionService, revocationList);
+        verify(userRepository, never()).removeByIdAndEmail(any(), any());
+    }
+
+    @Test
+    public void testDeleteUserDeletedMeanwhile() {
+        when(userRepository.existsByIdAndEmail(1L, "test@example.com")).thenReturn(true);
+        when(userRepository.removeByIdAndEmail(1L, "test@example.com")).thenReturn(0);
+        assertThrows(NotFoundException.class, () -> userService.delete(1L, "test@example.com"));
+        verify(revocationList, never()).revokeUser(anyLong());
+    }
+
+    @Test
+    public void testDeleteAll() {
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+        when(userRepository.removeAllById(ids)).thenReturn(2);
+        assertEquals(2, userService.deleteAll(ids));
+        InOrder inOrder = inOrder(waitlistRepository, sessionService, userRepository);
+        inOrder.verify(waitlistRepository).deleteByUsers(ids);
+        inOrder.verify(sessionService).releaseSeats(ids);
+        inOrder.verify(userRepository).removeAllById(ids);
+        verify(revocationList, times(3)).revokeUser(anyLong());
+        verify(userRepository, never()).findAllById(any());
     }
 }
@@ -1,3 +1,6 @@
+-- The schema the migrations in back/src/main/resources/db/migration produce, for reference. The application
+-- applies those migrations at startup: do not load this script into a database the application will manage.
+
 CREATE TABLE `TEACHERS` (
   `id` INT PRIMARY KEY AUTO_INCREMENT,
   `last_name` VARCHAR(40),
@@ -13,7 +16,10 @@ CREATE TABLE `SESSIONS` (
   `date` TIMESTAMP,
   `teacher_id` int,
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  `version` BIGINT NOT NULL DEFAULT 0,
+  `capacity` INT,
+  `participant_count` INT NOT NULL DEFAULT 0
 );
 
 CREATE TABLE `USERS` (
@@ -21,20 +27,37 @@ CREATE TABLE `USERS` (
   `last_name` VARCHAR(40),
   `first_name` VARCHAR(40),
   `admin` BOOLEAN NOT NULL DEFAULT false,
-  `email` VARCHAR(255),
+  `email` VARCHAR(255) NOT NULL,
   `password` VARCHAR(255),
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
 CREATE TABLE `PARTICIPATE` (
-  `user_id` INT, 
-  `session_id` INT
+  `user_id` INT NOT NULL,
+  `session_id` INT NOT NULL,
+  PRIMARY KEY (`session_id`, `user_id`)
+);
+
+CREATE TABLE `WAITLIST` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT `UK_WAITLIST_SESSION_USER` UNIQUE (`session_id`, `user_id`)
 );
 
 ALTER TABLE `SESSIONS` ADD FOREIGN KEY (`teacher_id`) REFERENCES `TEACHERS` (`id`);
 ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
 ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+
+CREATE INDEX `IDX_SESSIONS_DATE_ID` ON `SESSIONS` (`date`, `id`);
+CREATE INDEX `IDX_SESSIONS_TEACHER_DATE_ID` ON `SESSIONS` (`teacher_id`, `date`, `id`);
+CREATE INDEX `IDX_WAITLIST_SESSION_ID` ON `WAITLIST` (`session_id`, `id`);
+CREATE INDEX `IDX_PARTICIPATE_USER_SESSION` ON `PARTICIPATE` (`user_id`, `session_id`);
+CREATE UNIQUE INDEX `UK_USERS_EMAIL` ON `USERS` (`email`);
 
 INSERT INTO TEACHERS (first_name, last_name)
 VALUES ('Margot', 'DELAHAYE'),